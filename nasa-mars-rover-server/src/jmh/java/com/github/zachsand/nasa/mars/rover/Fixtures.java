@@ -0,0 +1,66 @@
+package com.github.zachsand.nasa.mars.rover;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.github.zachsand.nasa.mars.rover.config.JacksonConfiguration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * {@link Fixtures} NASA Mars Rover API responses the benchmarks run against, so they run offline and on the same data
+ * every time. The fixtures are generated in the shape of the NASA Mars Rover API responses, not recorded from it, as
+ * described in the README.
+ */
+public class Fixtures {
+
+    /**
+     * Generated manifest of a rover the size of Curiosity's, a few thousand sols.
+     */
+    public static final String CURIOSITY_MANIFEST = "curiosity-manifest.json";
+
+    /**
+     * Generated photos of a busy sol of Curiosity, as many as returned for the sol when no page is given.
+     */
+    public static final String CURIOSITY_PHOTOS = "curiosity-photos-sol-1000.json";
+
+    /**
+     * @param name The file name of the fixture.
+     * @return The raw JSON of the fixture.
+     */
+    public static byte[] read(String name) {
+        try(InputStream input = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if(input == null) {
+                throw new IllegalArgumentException("No fixture named " + name);
+            }
+            return input.readAllBytes();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param name The file name of the fixture.
+     * @param type The type to read the fixture as.
+     * @return The fixture read with {@link #objectMapper()}.
+     */
+    public static <T> T read(String name, Class<T> type) {
+        try {
+            return objectMapper().readValue(read(name), type);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return {@link ObjectMapper} configured like the one of the application.
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+            .propertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+            .modulesToInstall(new JacksonConfiguration().internedValuesModule())
+            .build();
+    }
+}
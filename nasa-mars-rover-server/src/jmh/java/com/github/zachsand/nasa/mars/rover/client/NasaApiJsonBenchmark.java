@@ -0,0 +1,43 @@
+package com.github.zachsand.nasa.mars.rover.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.Fixtures;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import com.github.zachsand.nasa.mars.rover.model.PhotosManifest;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NasaApiJsonBenchmark} deserialization of large NASA Mars Rover API responses, with the {@link ObjectMapper}
+ * configured like the one the {@link NasaRoverClient} reads them with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NasaApiJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private byte[] photosJson;
+
+    private byte[] manifestJson;
+
+    @Setup
+    public void setup() {
+        objectMapper = Fixtures.objectMapper();
+        photosJson = Fixtures.read(Fixtures.CURIOSITY_PHOTOS);
+        manifestJson = Fixtures.read(Fixtures.CURIOSITY_MANIFEST);
+    }
+
+    @Benchmark
+    public PhotoList readPhotoList() throws IOException {
+        return objectMapper.readValue(photosJson, PhotoList.class);
+    }
+
+    @Benchmark
+    public PhotosManifest readPhotosManifest() throws IOException {
+        return objectMapper.readValue(manifestJson, PhotosManifest.class);
+    }
+}
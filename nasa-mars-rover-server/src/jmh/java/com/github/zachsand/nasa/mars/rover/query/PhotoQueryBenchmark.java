@@ -0,0 +1,44 @@
+package com.github.zachsand.nasa.mars.rover.query;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PhotoQueryBenchmark} parsing of the photo query parameters of a request, and turning away malformed ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhotoQueryBenchmark {
+
+    private MultiValueMap<String, String> validQueryParams;
+
+    private MultiValueMap<String, String> invalidQueryParams;
+
+    @Setup
+    public void setup() {
+        validQueryParams = new LinkedMultiValueMap<>();
+        validQueryParams.add("earth_date", "June 3, 2015");
+        validQueryParams.add("camera", "navcam");
+        validQueryParams.add("page", "2");
+        invalidQueryParams = new LinkedMultiValueMap<>();
+        invalidQueryParams.add("sol", "one thousand");
+    }
+
+    @Benchmark
+    public PhotoQuery parseValid() {
+        return PhotoQuery.parse("Curiosity", validQueryParams);
+    }
+
+    @Benchmark
+    public Object parseInvalid() {
+        try {
+            return PhotoQuery.parse("Curiosity", invalidQueryParams);
+        } catch(InvalidQueryException e) {
+            return e;
+        }
+    }
+}
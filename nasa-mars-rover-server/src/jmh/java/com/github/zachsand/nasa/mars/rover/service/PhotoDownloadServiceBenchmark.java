@@ -0,0 +1,50 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.zachsand.nasa.mars.rover.Fixtures;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PhotoDownloadServiceBenchmark} the scan for a photo id in the photos of a sol, which a download of a photo that
+ * isn't in the index or the store falls back to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PhotoDownloadServiceBenchmark {
+
+    /* Where in the photos of the sol the photo is, or MISSING for an id none of them have */
+    @Param({"FIRST", "MIDDLE", "LAST", "MISSING"})
+    private String position;
+
+    private Photo[] photos;
+
+    private int photoId;
+
+    @Setup
+    public void setup() {
+        photos = Fixtures.read(Fixtures.CURIOSITY_PHOTOS, PhotoList.class).getPhotos();
+        switch(position) {
+            case "FIRST":
+                photoId = photos[0].getId();
+                break;
+            case "MIDDLE":
+                photoId = photos[photos.length / 2].getId();
+                break;
+            case "LAST":
+                photoId = photos[photos.length - 1].getId();
+                break;
+            default:
+                photoId = -1;
+        }
+    }
+
+    @Benchmark
+    public Optional<Photo> findPhotoById() {
+        return PhotoDownloadService.findPhotoById(photos, photoId);
+    }
+}
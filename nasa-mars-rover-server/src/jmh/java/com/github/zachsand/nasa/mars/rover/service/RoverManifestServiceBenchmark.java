@@ -0,0 +1,99 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.zachsand.nasa.mars.rover.Fixtures;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.config.NasaApiConfiguration;
+import com.github.zachsand.nasa.mars.rover.index.PhotoIdIndex;
+import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RoverManifestServiceBenchmark} manifest lookups by sol and by {@code earth_date} against a manifest the size of
+ * Curiosity's, once it is cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoverManifestServiceBenchmark {
+
+    private RoverManifestService roverManifestService;
+
+    private PhotoQuery solQuery;
+
+    private PhotoQuery earthDateQuery;
+
+    private MultiValueMap<String, String> solRangeQuery;
+
+    @Setup
+    public void setup() {
+        PhotosManifest photosManifest = Fixtures.read(Fixtures.CURIOSITY_MANIFEST, PhotosManifest.class);
+        FixtureRoverClient fixtureRoverClient = new FixtureRoverClient(photosManifest);
+        roverManifestService = new RoverManifestService(fixtureRoverClient,
+            new RoverCatalog(fixtureRoverClient, Fixtures.objectMapper()), new SimpleMeterRegistry());
+
+        ManifestPhoto middle = photosManifest.getPhotoManifest().getPhotos()[photosManifest.getPhotoManifest().getPhotos().length / 2];
+        solQuery = PhotoQuery.parse("curiosity", query("sol", String.valueOf(middle.getSol())));
+        earthDateQuery = PhotoQuery.parse("curiosity", query("earth_date", middle.getEarthDate()));
+        solRangeQuery = query("start_sol", "100");
+        solRangeQuery.add("end_sol", String.valueOf(middle.getSol()));
+
+        /* Loads the manifest into the cache, lookups are what is measured */
+        roverManifestService.getRoverPhotoManifestByDate(solQuery).block();
+    }
+
+    private static MultiValueMap<String, String> query(String name, String value) {
+        MultiValueMap<String, String> query = new LinkedMultiValueMap<>();
+        query.add(name, value);
+        return query;
+    }
+
+    @Benchmark
+    public Versioned<ManifestPhoto> getBySol() {
+        return roverManifestService.getRoverPhotoManifestByDate(solQuery).block();
+    }
+
+    @Benchmark
+    public Versioned<ManifestPhoto> getByEarthDate() {
+        return roverManifestService.getRoverPhotoManifestByDate(earthDateQuery).block();
+    }
+
+    @Benchmark
+    public Versioned<ManifestRange> summarizeSolRange() {
+        return roverManifestService.getRoverPhotoManifestRange("curiosity", solRangeQuery).block();
+    }
+
+    /**
+     * {@link FixtureRoverClient} answers with the fixture instead of going to the NASA Mars Rover API.
+     */
+    private static class FixtureRoverClient extends NasaRoverClient {
+
+        private final PhotosManifest photosManifest;
+
+        FixtureRoverClient(PhotosManifest photosManifest) {
+            super(new NasaApiConfiguration("http://localhost", "/rovers/%s/photos", "/manifests/%s", "/rovers", false),
+                new PhotoIdIndex(), WebClient.builder(), new SimpleMeterRegistry());
+            this.photosManifest = photosManifest;
+        }
+
+        @Override
+        public Mono<PhotosManifest> getRoverManifest(String roverName) {
+            return Mono.just(photosManifest);
+        }
+
+        @Override
+        public Mono<RoverList> getRovers() {
+            Manifest manifest = photosManifest.getPhotoManifest();
+            return Mono.just(new RoverList(new Rover[] {new Rover(5, manifest.getName(), manifest.getLandingDate(),
+                manifest.getLaunchDate(), manifest.getStatus(), manifest.getMaxSol(), manifest.getMaxDate(),
+                manifest.getTotalPhotos(), new Camera[0])}));
+        }
+    }
+}
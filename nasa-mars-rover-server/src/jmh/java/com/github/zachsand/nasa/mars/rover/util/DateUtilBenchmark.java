@@ -0,0 +1,38 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DateUtilBenchmark} parsing of {@code earth_date} in every accepted format, and of dates that are rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateUtilBenchmark {
+
+    @Param({
+        "2015-06-03",
+        "06/03/2015",
+        "06/03/15",
+        "June 3, 2015",
+        "Jun-3-2015",
+        "6/3/2015",
+        "2015-02-30",
+        "yesterday"
+    })
+    private String date;
+
+    @Benchmark
+    public Optional<LocalDate> getLocalDateFromDate() {
+        return DateUtil.getLocalDateFromDate(date);
+    }
+
+    @Benchmark
+    public long parseEpochDay() {
+        return DateUtil.parseEpochDay(date);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MarsClockBenchmark} translations between sols and earth dates of Curiosity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MarsClockBenchmark {
+
+    private final MarsClock marsClock = new MarsClock(LocalDate.of(2012, 8, 6).toEpochDay());
+
+    private final long epochDay = LocalDate.of(2015, 5, 30).toEpochDay();
+
+    private final int sol = 1000;
+
+    @Benchmark
+    public long toEpochDay() {
+        return marsClock.toEpochDay(sol);
+    }
+
+    @Benchmark
+    public int toSol() {
+        return marsClock.toSol(epochDay);
+    }
+}
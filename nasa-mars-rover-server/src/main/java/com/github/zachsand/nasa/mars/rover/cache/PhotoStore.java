@@ -0,0 +1,379 @@
+package com.github.zachsand.nasa.mars.rover.cache;
+
+import com.github.zachsand.nasa.mars.rover.config.PhotoStoreConfiguration;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link PhotoStore} disk backed store for NASA Mars rover photo images, keyed by rover name and photo id. A rover photo
+ * never changes once it is published, so a stored image is served from disk for as long as it fits in the size budget.
+ * The least recently used images are evicted once the total size exceeds the configured maximum.
+ *
+ * All methods perform blocking file IO and should not be called from the event loop.
+ */
+@Component
+public class PhotoStore {
+
+    private static final String PHOTO_EXTENSION = ".jpg";
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    /* Rover names come straight from the request path, so only plain names are allowed to become directories */
+    private static final Pattern VALID_ROVER_NAME = Pattern.compile("[a-z0-9_-]+");
+
+    private final Path directory;
+
+    private final long maxSizeBytes;
+
+    /* Access ordered, so iteration starts with the least recently used photo. Guarded by itself. */
+    private final LinkedHashMap<String, Long> photoSizes = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long totalSizeBytes;
+
+    /**
+     * {@link PhotoStore} disk backed store for NASA Mars rover photo images, keyed by rover name and photo id.
+     *
+     * @param photoStoreConfiguration {@link PhotoStoreConfiguration} Configuration for the store directory and size budget.
+     */
+    public PhotoStore(final PhotoStoreConfiguration photoStoreConfiguration) {
+        this.directory = Paths.get(photoStoreConfiguration.getDirectory()).toAbsolutePath();
+        this.maxSizeBytes = photoStoreConfiguration.getMaxSize().toBytes();
+    }
+
+    /**
+     * Rebuilds the in-memory index from the photos already on disk, so the store survives a restart. Partially written
+     * temporary files from an interrupted write are removed.
+     *
+     * @throws IOException If the store directory can not be created or read.
+     */
+    @PostConstruct
+    public void rebuildIndex() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Path> photoPaths;
+        try(Stream<Path> paths = Files.walk(directory, 2)) {
+            photoPaths = paths.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        Map<Path, BasicFileAttributes> photoAttributes = new HashMap<>();
+        for(Path path : photoPaths) {
+            String fileName = path.getFileName().toString();
+            if(fileName.endsWith(TEMP_EXTENSION)) {
+                Files.deleteIfExists(path);
+            } else if(fileName.endsWith(PHOTO_EXTENSION)) {
+                photoAttributes.put(path, Files.readAttributes(path, BasicFileAttributes.class));
+            }
+        }
+
+        List<Path> victims;
+        synchronized(photoSizes) {
+            photoSizes.clear();
+            totalSizeBytes = 0;
+
+            /* Insert oldest first so the most recently written photos end up as the most recently used */
+            photoAttributes.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()))
+                .forEach(entry -> {
+                    photoSizes.put(directory.relativize(entry.getKey()).toString(), entry.getValue().size());
+                    totalSizeBytes += entry.getValue().size();
+                });
+            victims = evictLeastRecentlyUsed();
+        }
+        deleteAll(victims);
+    }
+
+    /**
+     * Retrieves the raw image data of a stored photo, read through a memory mapped {@link FileChannel}.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param id The id of the photo.
+     * @return {@link Optional} of the image data, empty if the photo is not stored.
+     */
+    public Optional<byte[]> readPhoto(String roverName, int id) {
+        return mapPhoto(roverName, id).map(buffer -> {
+            byte[] imageData = new byte[buffer.remaining()];
+            buffer.get(imageData);
+            return imageData;
+        });
+    }
+
+    /**
+     * Memory maps a stored photo. The mapping stays valid even if the photo is evicted while it is being read.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param id The id of the photo.
+     * @return {@link Optional} of the read only {@link ByteBuffer}, empty if the photo is not stored.
+     */
+    public Optional<ByteBuffer> mapPhoto(String roverName, int id) {
+        Optional<String> key = toKey(roverName, id);
+        if(key.isEmpty() || !touch(key.get())) {
+            return Optional.empty();
+        }
+
+        try(FileChannel channel = FileChannel.open(directory.resolve(key.get()), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(buffer);
+        } catch(NoSuchFileException e) {
+            /* Removed from underneath the index, e.g. manually, so forget about it */
+            remove(key.get());
+            return Optional.empty();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finds the file of a stored photo, for serving it straight from disk. The file may be evicted and deleted at any
+     * time after it is found, in which case reading it fails.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param id The id of the photo.
+     * @return {@link Optional} of the {@link Path} of the photo, empty if the photo is not stored.
+     */
+    public Optional<Path> findPhoto(String roverName, int id) {
+        Optional<String> key = toKey(roverName, id);
+        if(key.isEmpty() || !touch(key.get())) {
+            return Optional.empty();
+        }
+
+        Path path = directory.resolve(key.get());
+        if(!Files.isRegularFile(path)) {
+            /* Removed from underneath the index, e.g. manually, so forget about it */
+            remove(key.get());
+            return Optional.empty();
+        }
+        return Optional.of(path);
+    }
+
+    /**
+     * Stores the raw image data of a photo. The data is written to a temporary file first and then atomically moved into
+     * place, so a reader never sees a partially written photo.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param id The id of the photo.
+     * @param imageData The raw image data.
+     * @return {@code true} if the photo was stored, {@code false} if it could not be.
+     */
+    public boolean storePhoto(String roverName, int id, byte[] imageData) {
+        Optional<String> key = toKey(roverName, id);
+        if(key.isEmpty() || imageData.length > maxSizeBytes) {
+            return false;
+        }
+
+        Path target = directory.resolve(key.get());
+        Path temp = null;
+        try {
+            temp = createTempFile(target, id);
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(imageData);
+                while(buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            moveAtomically(temp, target);
+        } catch(IOException e) {
+            deleteQuietly(temp);
+            return false;
+        }
+
+        index(key.get(), imageData.length);
+        return true;
+    }
+
+    /**
+     * Opens a {@link PhotoWriter} for writing the image data of a photo as it is streamed from the image source. Nothing
+     * is visible to readers until {@link PhotoWriter#commit(long)} is called.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param id The id of the photo.
+     * @return {@link Optional} of {@link PhotoWriter}, empty if the photo can not be stored.
+     */
+    public Optional<PhotoWriter> openPhotoWriter(String roverName, int id) {
+        Optional<String> key = toKey(roverName, id);
+        if(key.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Path target = directory.resolve(key.get());
+        Path temp = null;
+        try {
+            temp = createTempFile(target, id);
+            return Optional.of(new PhotoWriter(key.get(), target, temp,
+                AsynchronousFileChannel.open(temp, StandardOpenOption.WRITE)));
+        } catch(IOException e) {
+            deleteQuietly(temp);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return The total size in bytes of all stored photos.
+     */
+    public long getTotalSizeBytes() {
+        synchronized(photoSizes) {
+            return totalSizeBytes;
+        }
+    }
+
+    /**
+     * @return The number of stored photos.
+     */
+    public int getPhotoCount() {
+        synchronized(photoSizes) {
+            return photoSizes.size();
+        }
+    }
+
+    /**
+     * {@link PhotoWriter} writes a single photo to a temporary file of the {@link PhotoStore}, and then either moves it
+     * into place or discards it.
+     */
+    public class PhotoWriter {
+
+        private final String key;
+
+        private final Path target;
+
+        private final Path temp;
+
+        private final AsynchronousFileChannel channel;
+
+        private PhotoWriter(String key, Path target, Path temp, AsynchronousFileChannel channel) {
+            this.key = key;
+            this.target = target;
+            this.temp = temp;
+            this.channel = channel;
+        }
+
+        /**
+         * @return {@link AsynchronousFileChannel} for the temporary file to write the image data to.
+         */
+        public AsynchronousFileChannel getChannel() {
+            return channel;
+        }
+
+        /**
+         * Closes the temporary file and atomically moves it into the store.
+         *
+         * @param expectedSize The expected size of the image data, or {@code -1} if unknown. A temporary file of any
+         *                     other size is discarded rather than stored.
+         * @return {@code true} if the photo was stored, {@code false} if it was discarded.
+         */
+        public boolean commit(long expectedSize) {
+            try {
+                channel.close();
+                long size = Files.size(temp);
+                if(size == 0 || size > maxSizeBytes || (expectedSize >= 0 && size != expectedSize)) {
+                    deleteQuietly(temp);
+                    return false;
+                }
+                moveAtomically(temp, target);
+                index(key, size);
+                return true;
+            } catch(IOException e) {
+                deleteQuietly(temp);
+                return false;
+            }
+        }
+
+        /**
+         * Closes and discards the temporary file.
+         */
+        public void abort() {
+            try {
+                channel.close();
+            } catch(IOException e) {
+                /* Deleted below either way */
+            }
+            deleteQuietly(temp);
+        }
+    }
+
+    private Path createTempFile(Path target, int id) throws IOException {
+        Files.createDirectories(target.getParent());
+        return Files.createTempFile(target.getParent(), id + "-", TEMP_EXTENSION);
+    }
+
+    private void index(String key, long size) {
+        List<Path> victims;
+        synchronized(photoSizes) {
+            Long previousSize = photoSizes.put(key, size);
+            totalSizeBytes += size - (previousSize == null ? 0 : previousSize);
+            victims = evictLeastRecentlyUsed();
+        }
+        deleteAll(victims);
+    }
+
+    private Optional<String> toKey(String roverName, int id) {
+        String rover = roverName.toLowerCase(Locale.ENGLISH);
+        if(id < 0 || !VALID_ROVER_NAME.matcher(rover).matches()) {
+            return Optional.empty();
+        }
+        return Optional.of(rover + "/" + id + PHOTO_EXTENSION);
+    }
+
+    /* Looking the key up marks it as the most recently used */
+    private boolean touch(String key) {
+        synchronized(photoSizes) {
+            return photoSizes.get(key) != null;
+        }
+    }
+
+    private void remove(String key) {
+        synchronized(photoSizes) {
+            Long size = photoSizes.remove(key);
+            if(size != null) {
+                totalSizeBytes -= size;
+            }
+        }
+    }
+
+    /* Must be called while holding the photoSizes lock. Files are deleted by the caller once the lock is released. */
+    private List<Path> evictLeastRecentlyUsed() {
+        List<Path> victims = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = photoSizes.entrySet().iterator();
+        while(totalSizeBytes > maxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            totalSizeBytes -= eldest.getValue();
+            victims.add(directory.resolve(eldest.getKey()));
+            iterator.remove();
+        }
+        return victims;
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteAll(List<Path> paths) {
+        paths.forEach(PhotoStore::deleteQuietly);
+    }
+
+    private static void deleteQuietly(Path path) {
+        if(path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch(IOException e) {
+            /* Nothing else to do, the file will be cleaned up again on the next restart if it is a temporary file */
+        }
+    }
+}
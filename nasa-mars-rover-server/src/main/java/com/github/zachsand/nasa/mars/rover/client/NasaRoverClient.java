@@ -1,25 +1,36 @@
 package com.github.zachsand.nasa.mars.rover.client;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.zachsand.nasa.mars.rover.config.MetricsConfiguration;
 import com.github.zachsand.nasa.mars.rover.config.NasaApiConfiguration;
+import com.github.zachsand.nasa.mars.rover.index.PhotoIdIndex;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
 import com.github.zachsand.nasa.mars.rover.model.PhotoList;
 import com.github.zachsand.nasa.mars.rover.model.PhotosManifest;
 import com.github.zachsand.nasa.mars.rover.model.RoverList;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
 import com.github.zachsand.nasa.mars.rover.util.DateUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
-import java.util.Collections;
-import java.util.List;
+import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link NasaRoverClient} Client for querying the NASA Mars Rover API.
@@ -33,19 +44,49 @@ public class NasaRoverClient {
 
     private final WebClient nasaRoverWebClient;
 
+    private final PhotoIdIndex photoIdIndex;
+
+    private final AsyncCache<PhotoQuery, PhotoList> roverPhotosCache;
+
+    private static final int PAST_PHOTOS_EXPIRE_HOURS = 24 * 7;
+
+    private static final int RECENT_PHOTOS_EXPIRE_MINUTES = 10;
+
+    /* Weighed by photo count, since a single response can hold anything from zero to hundreds of photos */
+    private static final long PHOTOS_CACHE_MAX_PHOTOS = 100_000;
+
+    /* Number of photos per page of the NASA Mars Rover API when per_page isn't given */
+    private static final int DEFAULT_PHOTOS_PER_PAGE = 25;
+
+    /* The page being emitted plus the one after it */
+    private static final int PAGE_PREFETCH = 2;
+
     /**
      * {@link NasaRoverClient} Client for querying the NASA Mars Rover API.
      *
      * @param nasaApiConfiguration {@link NasaApiConfiguration} Configuration for NASA Mars Rover API values.
+     * @param photoIdIndex {@link PhotoIdIndex} Index that every retrieved photo is added to.
      * @param webClientBuilder {@link WebClient.Builder} Builder for the {@link WebClient} used to query the NASA Mars
      *                                                  Rover API.
+     * @param meterRegistry {@link MeterRegistry} Registry the statistics of the photo metadata cache are reported to.
      */
-    public NasaRoverClient(final NasaApiConfiguration nasaApiConfiguration, WebClient.Builder webClientBuilder) {
+    public NasaRoverClient(final NasaApiConfiguration nasaApiConfiguration, final PhotoIdIndex photoIdIndex,
+                           WebClient.Builder webClientBuilder, final MeterRegistry meterRegistry) {
         this.nasaApiConfiguration = nasaApiConfiguration;
+        this.photoIdIndex = photoIdIndex;
 
         this.nasaRoverWebClient = webClientBuilder
             .baseUrl(nasaApiConfiguration.getBaseRoverUrl())
             .build();
+
+        this.roverPhotosCache = Caffeine.newBuilder()
+            .maximumWeight(PHOTOS_CACHE_MAX_PHOTOS)
+            .<PhotoQuery, PhotoList>weigher((key, photoList) ->
+                photoList.getPhotos() == null ? 1 : photoList.getPhotos().length + 1)
+            .expireAfter(new PhotoListExpiry())
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, roverPhotosCache, "roverPhotosCache");
     }
 
     /**
@@ -57,6 +98,8 @@ public class NasaRoverClient {
     public Mono<PhotosManifest> getRoverManifest(String roverName) {
         return nasaRoverWebClient.get()
             .uri(String.format(nasaApiConfiguration.getManifestEndpoint(), roverName))
+            .attribute(MetricsConfiguration.ENDPOINT_ATTRIBUTE, "manifest")
+            .attribute(MetricsConfiguration.ROVER_ATTRIBUTE, roverName)
             .accept(MediaType.APPLICATION_JSON)
             .retrieve()
             .onStatus(HttpStatus::isError, NasaRoverClient::handleError)
@@ -72,6 +115,7 @@ public class NasaRoverClient {
     public Mono<RoverList> getRovers() {
         return nasaRoverWebClient.get()
                 .uri(nasaApiConfiguration.getRoversEndpoint())
+                .attribute(MetricsConfiguration.ENDPOINT_ATTRIBUTE, "rovers")
                 .accept(MediaType.APPLICATION_JSON)
                 .retrieve()
                 .onStatus(HttpStatus::isError, NasaRoverClient::handleError)
@@ -80,38 +124,131 @@ public class NasaRoverClient {
     }
 
     /**
-     * Retrieves all photo metadata for the NASA Mars rover in the form of {@link PhotoList}, filtered by the query parameters.
-     * Acceptable query parameters are {@code earth_date}, {@code sol}, {@code page}, {@code per_page}.
+     * Retrieves all photo metadata for the NASA Mars rover in the form of {@link PhotoList}, filtered by the
+     * {@code earth_date}, {@code sol}, {@code camera}, {@code page} and {@code per_page} of the query.
      *
-     * @param roverName The name of the NASA Mars rover.
-     * @param queryParams HTTP query parameters from the original API request, used to be more specific about what photos to find.
+     * Responses are cached by the query, and concurrent requests for the same query share a single request to the NASA
+     * Mars Rover API. Photos for past dates don't change, so they are cached much longer than recent ones.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover and the photos to find.
      * @return {@link Mono} of {@link PhotoList} with photo metadata from the NASA Mars Rover API.
      */
-    public Mono<PhotoList> getRoverPhotos(String roverName, MultiValueMap<String, String> queryParams) {
-
-        /* Ugly way (but works) to change query param for earth date since input query params are immutable */
-        LinkedMultiValueMap queryParameters = new LinkedMultiValueMap<String, String>();
-        queryParameters.putAll(queryParams);
-        List<String> earthDates = queryParams.get("earth_date");
-        if(!CollectionUtils.isEmpty(earthDates)) {
-            Optional<LocalDate> localDate =  DateUtil.getLocalDateFromDate(earthDates.get(0));
-            if(localDate.isPresent()) {
-                queryParameters.put("earth_date", Collections.singletonList(DateUtil.convertDateToNasaFormat(localDate.get())));
-            } else {
-                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bad earth_date format given"));
-            }
-        }
+    public Mono<PhotoList> getRoverPhotos(PhotoQuery photoQuery) {
+        return Mono.fromFuture(() -> roverPhotosCache.get(photoQuery, (key, executor) -> fetchRoverPhotos(key).toFuture()));
+    }
 
-        return nasaRoverWebClient.get()
-                .uri(uriBuilder ->
-                    uriBuilder.path(String.format(nasaApiConfiguration.getRoverPhotosEndpoint(), roverName))
-                        .queryParams(queryParameters)
-                        .build())
-                .accept(MediaType.APPLICATION_JSON)
+    /**
+     * Retrieves the photo metadata for the query from the NASA Mars Rover API like {@link #getRoverPhotos(PhotoQuery)},
+     * but past the cache, for when photos may have been published since the cached response and only a summary of them
+     * is needed. The response isn't cached either, so it is let go as soon as the caller is done with it.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover and the photos to find.
+     * @return {@link Mono} of {@link PhotoList} with photo metadata from the NASA Mars Rover API.
+     */
+    public Mono<PhotoList> getUncachedRoverPhotos(PhotoQuery photoQuery) {
+        return fetchRoverPhotos(photoQuery);
+    }
+
+    /**
+     * @return Whether rover photos responses should be relayed with {@link #relayRoverPhotos(PhotoQuery)}.
+     */
+    public boolean isPhotosRelay() {
+        return nasaApiConfiguration.isPhotosRelay();
+    }
+
+    /**
+     * Relays the rover photos response of the NASA Mars Rover API for the same query as
+     * {@link #getRoverPhotos(PhotoQuery)}, as the raw response body. Nothing is deserialized, so there is no
+     * {@link Photo} per photo to create and serialize again, but the response isn't cached and its photos aren't added
+     * to the {@link PhotoIdIndex} either.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover and the photos to find.
+     * @return {@link Mono} of {@link ResponseEntity} with the headers and the {@link Flux} of {@link DataBuffer} body of
+     * the NASA Mars Rover API response.
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> relayRoverPhotos(PhotoQuery photoQuery) {
+        return photosRequest(photoQuery)
+            .retrieve()
+            .onStatus(HttpStatus::isError, NasaRoverClient::handleError)
+            .toEntityFlux(DataBuffer.class);
+    }
+
+    /**
+     * Streams all photo metadata for the NASA Mars rover across every page of the NASA Mars Rover API, starting at
+     * {@code page} if given and at the first page otherwise. Pages are retrieved through
+     * {@link #getRoverPhotos(PhotoQuery)} lazily as the photos are consumed, with the next page retrieved while the
+     * current one is emitted, so the first photos arrive as soon as the first page does no matter how many pages there
+     * are.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover and the photos to find, as for {@link #getRoverPhotos(PhotoQuery)}.
+     * @return {@link Flux} of {@link Photo} with photo metadata from the NASA Mars Rover API.
+     */
+    public Flux<Photo> streamRoverPhotos(PhotoQuery photoQuery) {
+        int firstPage = Optional.ofNullable(photoQuery.getPage()).orElse(1);
+        int perPage = Optional.ofNullable(photoQuery.getPerPage()).orElse(DEFAULT_PHOTOS_PER_PAGE);
+
+        /* At most one page past the last one is requested, before takeWhile cancels the rest */
+        return Flux.range(firstPage, Integer.MAX_VALUE - firstPage)
+            .flatMapSequential(page -> getRoverPhotos(photoQuery.withPage(page)), PAGE_PREFETCH, 1)
+            .takeWhile(photoList -> photoList.getPhotos() != null && photoList.getPhotos().length > 0)
+            .takeUntil(photoList -> photoList.getPhotos().length < perPage)
+            .flatMapIterable(photoList -> Arrays.asList(photoList.getPhotos()));
+    }
+
+    private Mono<PhotoList> fetchRoverPhotos(PhotoQuery photoQuery) {
+        return photosRequest(photoQuery)
                 .retrieve()
                 .onStatus(HttpStatus::isError, NasaRoverClient::handleError)
                 .bodyToMono(PhotoList.class)
-                .single();
+                .single()
+                .doOnNext(photoIdIndex::indexPhotos);
+    }
+
+    private WebClient.RequestHeadersSpec<?> photosRequest(PhotoQuery photoQuery) {
+        return nasaRoverWebClient.get()
+                .uri(uriBuilder ->
+                    uriBuilder.path(String.format(nasaApiConfiguration.getRoverPhotosEndpoint(), photoQuery.getRoverName()))
+                        .queryParamIfPresent("earth_date", Optional.ofNullable(photoQuery.getEarthDate()))
+                        .queryParamIfPresent("sol", Optional.ofNullable(photoQuery.getSol()))
+                        .queryParamIfPresent("camera", Optional.ofNullable(photoQuery.getCamera()))
+                        .queryParamIfPresent("page", Optional.ofNullable(photoQuery.getPage()))
+                        .queryParamIfPresent("per_page", Optional.ofNullable(photoQuery.getPerPage()))
+                        .build())
+                .attribute(MetricsConfiguration.ENDPOINT_ATTRIBUTE, "photos")
+                .attribute(MetricsConfiguration.ROVER_ATTRIBUTE, photoQuery.getRoverName())
+                .accept(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * {@link Expiry} for the photo metadata cache. Photos taken before today are not going to change, so they are kept
+     * for {@link #PAST_PHOTOS_EXPIRE_HOURS}. Anything else, including empty responses which may just not be published
+     * yet, is kept for {@link #RECENT_PHOTOS_EXPIRE_MINUTES}.
+     */
+    private static class PhotoListExpiry implements Expiry<PhotoQuery, PhotoList> {
+
+        @Override
+        public long expireAfterCreate(PhotoQuery key, PhotoList photoList, long currentTime) {
+            long epochDay = DateUtil.INVALID_DATE;
+            if(key.getEpochDay() != null) {
+                epochDay = key.getEpochDay();
+            } else if(photoList.getPhotos() != null && photoList.getPhotos().length > 0) {
+                /* Queried by sol, so go by when the photos were taken */
+                epochDay = DateUtil.parseEpochDay(photoList.getPhotos()[0].getEarthDate());
+            }
+
+            boolean past = epochDay != DateUtil.INVALID_DATE && epochDay < LocalDate.now(ZoneOffset.UTC).toEpochDay();
+            return past ? TimeUnit.HOURS.toNanos(PAST_PHOTOS_EXPIRE_HOURS) : TimeUnit.MINUTES.toNanos(RECENT_PHOTOS_EXPIRE_MINUTES);
+        }
+
+        @Override
+        public long expireAfterUpdate(PhotoQuery key, PhotoList photoList, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, photoList, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(PhotoQuery key, PhotoList photoList, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 
     /**
@@ -0,0 +1,46 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+
+import java.time.Duration;
+
+/**
+ * {@link DownloadJobConfiguration} configuration for the bulk photo download jobs. Values are automatically populated
+ * from the spring configuration values contained in the prefix {@code nasa.mars.rover.download-jobs}.
+ */
+@Getter
+@ConstructorBinding
+@ConfigurationProperties(prefix = "nasa.mars.rover.download-jobs")
+public class DownloadJobConfiguration {
+
+    private final String directory;
+
+    private final int maxConcurrentJobs;
+
+    private final int maxDays;
+
+    private final Duration retention;
+
+    private final int maxFinishedJobs;
+
+    /**
+     * {@link DownloadJobConfiguration} configuration for the bulk photo download jobs. Values are automatically
+     * populated from the spring configuration values contained in the prefix {@code nasa.mars.rover.download-jobs}.
+     *
+     * @param directory The directory the job log and the downloaded photos of every job are kept in.
+     * @param maxConcurrentJobs The maximum number of jobs that run at the same time, later jobs wait in a queue.
+     * @param maxDays The maximum number of sols or earth dates a single job may span.
+     * @param retention How long a completed or failed job, and its photos, are kept after it finished.
+     * @param maxFinishedJobs The maximum number of completed or failed jobs kept, before the oldest are removed early.
+     */
+    public DownloadJobConfiguration(final String directory, final int maxConcurrentJobs, final int maxDays,
+                                    final Duration retention, final int maxFinishedJobs) {
+        this.directory = directory;
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.maxDays = maxDays;
+        this.retention = retention;
+        this.maxFinishedJobs = maxFinishedJobs;
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.PhotoRover;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link JacksonConfiguration} additions to the Jackson {@link ObjectMapper} that Spring Boot configures, which is also
+ * the one the {@link org.springframework.web.reactive.function.client.WebClient}s use to read NASA Mars Rover API
+ * responses.
+ */
+@Configuration
+public class JacksonConfiguration {
+
+    /*
+     * Deserialized instances of these are interned, since every photo of a response repeats the same few of them. They
+     * have to be immutable, since one instance ends up shared by photos of every cached response.
+     */
+    private static final Set<Class<?>> INTERNED_TYPES = Set.of(Camera.class, PhotoRover.class);
+
+    /* There are only a handful of rovers and cameras, so this only ever grows past it with unexpected data */
+    private static final int MAX_INTERNED = 1_000;
+
+    /**
+     * Module that makes every deserialized {@link Camera} and {@link PhotoRover} that is equal to one deserialized before
+     * the very same instance, so a cached photos response holds one of each instead of one per photo.
+     *
+     * @return {@link Module} registered with the Spring Boot {@link ObjectMapper}.
+     */
+    @Bean
+    public Module internedValuesModule() {
+        Map<Object, Object> interned = new ConcurrentHashMap<>();
+        SimpleModule module = new SimpleModule("InternedValues");
+        module.setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc,
+                                                          JsonDeserializer<?> deserializer) {
+                return INTERNED_TYPES.contains(beanDesc.getBeanClass())
+                    ? new InterningDeserializer(deserializer, interned)
+                    : deserializer;
+            }
+        });
+        return module;
+    }
+
+    /**
+     * {@link InterningDeserializer} hands back the first equal instance that was deserialized instead of a new one.
+     */
+    private static class InterningDeserializer extends DelegatingDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<Object, Object> interned;
+
+        InterningDeserializer(JsonDeserializer<?> delegatee, Map<Object, Object> interned) {
+            super(delegatee);
+            this.interned = interned;
+        }
+
+        @Override
+        protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+            return new InterningDeserializer(newDelegatee, interned);
+        }
+
+        @Override
+        public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            Object value = super.deserialize(p, ctxt);
+            if(value == null) {
+                return null;
+            }
+            if(interned.size() >= MAX_INTERNED) {
+                interned.clear();
+            }
+            Object existing = interned.putIfAbsent(value, value);
+            return existing == null ? value : existing;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.reactive.client.WebClientExchangeTags;
+import org.springframework.boot.actuate.metrics.web.reactive.client.WebClientExchangeTagsProvider;
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTagsContributor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * {@link MetricsConfiguration} tags of the {@code http.server.requests} and {@code http.client.requests} metrics that
+ * Spring Boot records, so the latency of a route can be told apart by rover, and the latency of the NASA Mars Rover API
+ * by endpoint and from that of the image source.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * Request attribute with the name of the upstream endpoint a {@link org.springframework.web.reactive.function.client.WebClient}
+     * request is for, used as its {@code uri} tag.
+     */
+    public static final String ENDPOINT_ATTRIBUTE = "nasa.mars.rover.metrics.endpoint";
+
+    /**
+     * Request attribute with the name of the rover a {@link org.springframework.web.reactive.function.client.WebClient}
+     * request is for, used as its {@code rover} tag.
+     */
+    public static final String ROVER_ATTRIBUTE = "nasa.mars.rover.metrics.rover";
+
+    private static final String NONE = "none";
+
+    private final RoverTags roverTags;
+
+    /**
+     * {@link MetricsConfiguration} tags of the {@code http.server.requests} and {@code http.client.requests} metrics.
+     *
+     * @param roverTags {@link RoverTags} The values of the {@code rover} tag.
+     */
+    public MetricsConfiguration(final RoverTags roverTags) {
+        this.roverTags = roverTags;
+    }
+
+    /**
+     * Adds the {@code rover} tag to {@code http.server.requests}, from the {@code roverName} path variable of the route.
+     * The {@code uri} tag already is the route pattern.
+     *
+     * @return {@link WebFluxTagsContributor} added to the default tags by Spring Boot.
+     */
+    @Bean
+    public WebFluxTagsContributor roverTagsContributor() {
+        return (exchange, ex) -> {
+            Map<String, String> uriVariables = exchange.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            return Tags.of("rover", roverTags.roverTag(uriVariables == null ? null : uriVariables.get("roverName")));
+        };
+    }
+
+    /**
+     * Tags of {@code http.client.requests}. The {@code uri} tag is the endpoint from {@link #ENDPOINT_ATTRIBUTE} instead of
+     * the url, since the url of every photo is different, and the {@code rover} tag is from {@link #ROVER_ATTRIBUTE}.
+     *
+     * @return {@link WebClientExchangeTagsProvider} used by Spring Boot instead of its default.
+     */
+    @Bean
+    public WebClientExchangeTagsProvider upstreamTagsProvider() {
+        return (request, response, throwable) -> Tags.of(
+            WebClientExchangeTags.method(request),
+            Tag.of("uri", request.attribute(ENDPOINT_ATTRIBUTE).map(String::valueOf).orElse(NONE)),
+            Tag.of("rover", roverTags.roverTag(request.attribute(ROVER_ATTRIBUTE).map(String::valueOf).orElse(null))),
+            WebClientExchangeTags.clientName(request),
+            WebClientExchangeTags.status(response, throwable),
+            WebClientExchangeTags.outcome(response));
+    }
+}
@@ -21,6 +21,8 @@ public class NasaApiConfiguration {
 
     private final String roversEndpoint;
 
+    private final boolean photosRelay;
+
     /**
      * {@link NasaApiConfiguration} configuration for the NASA Mars Rover API. Values are automatically populated from the
      *  spring configuration values contained in the prefix {@code nasa.mars.rover.api}.
@@ -29,12 +31,15 @@ public class NasaApiConfiguration {
      * @param roverPhotosEndpoint The rover photos endpoint format for the NASA Mars Rover API.
      * @param manifestEndpoint The manifest endpoint format for the NASA Mars Rover API.
      * @param roversEndpoint The rovers endpoint format for the NASA Mars Rover API.
+     * @param photosRelay Whether rover photos responses are relayed from the NASA Mars Rover API as they are, instead of
+     *                    being read, cached and written again.
      */
     public NasaApiConfiguration(final String baseRoverUrl, final String roverPhotosEndpoint, final String manifestEndpoint,
-        final String roversEndpoint) {
+        final String roversEndpoint, final boolean photosRelay) {
         this.baseRoverUrl = baseRoverUrl;
         this.roverPhotosEndpoint = roverPhotosEndpoint;
         this.manifestEndpoint = manifestEndpoint;
         this.roversEndpoint = roversEndpoint;
+        this.photosRelay = photosRelay;
     }
 }
@@ -0,0 +1,50 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * {@link PhotoDerivativeConfiguration} configuration for the resized photo derivatives. Values are automatically
+ * populated from the spring configuration values contained in the prefix {@code nasa.mars.rover.photo-derivatives}.
+ */
+@Getter
+@ConstructorBinding
+@ConfigurationProperties(prefix = "nasa.mars.rover.photo-derivatives")
+public class PhotoDerivativeConfiguration {
+
+    private final int workerThreads;
+
+    private final int maxQueuedResizes;
+
+    private final int maxDimension;
+
+    private final DataSize cacheMaxSize;
+
+    private final int mosaicParallelism;
+
+    private final DataSize mosaicCacheMaxSize;
+
+    /**
+     * {@link PhotoDerivativeConfiguration} configuration for the resized photo derivatives. Values are automatically
+     * populated from the spring configuration values contained in the prefix {@code nasa.mars.rover.photo-derivatives}.
+     *
+     * @param workerThreads The number of threads photos are resized on.
+     * @param maxQueuedResizes The maximum number of resizes waiting for a thread before requests are turned away.
+     * @param maxDimension The maximum width or height that can be requested.
+     * @param cacheMaxSize The maximum total size of all cached derivatives before the least recently used are evicted.
+     * @param mosaicParallelism The number of threads the tiles of mosaics are made on, or 0 for one per processor.
+     * @param mosaicCacheMaxSize The maximum total size of all cached mosaics before the least recently used are evicted.
+     */
+    public PhotoDerivativeConfiguration(final int workerThreads, final int maxQueuedResizes, final int maxDimension,
+                                        final DataSize cacheMaxSize, final int mosaicParallelism,
+                                        final DataSize mosaicCacheMaxSize) {
+        this.workerThreads = workerThreads;
+        this.maxQueuedResizes = maxQueuedResizes;
+        this.maxDimension = maxDimension;
+        this.cacheMaxSize = cacheMaxSize;
+        this.mosaicParallelism = mosaicParallelism;
+        this.mosaicCacheMaxSize = mosaicCacheMaxSize;
+    }
+}
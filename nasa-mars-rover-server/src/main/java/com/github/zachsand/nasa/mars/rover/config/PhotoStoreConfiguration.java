@@ -0,0 +1,32 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * {@link PhotoStoreConfiguration} configuration for the on-disk photo store. Values are automatically populated from the
+ * spring configuration values contained in the prefix {@code nasa.mars.rover.photo-store}.
+ */
+@Getter
+@ConstructorBinding
+@ConfigurationProperties(prefix = "nasa.mars.rover.photo-store")
+public class PhotoStoreConfiguration {
+
+    private final String directory;
+
+    private final DataSize maxSize;
+
+    /**
+     * {@link PhotoStoreConfiguration} configuration for the on-disk photo store. Values are automatically populated from
+     * the spring configuration values contained in the prefix {@code nasa.mars.rover.photo-store}.
+     *
+     * @param directory The directory the photo images are stored in.
+     * @param maxSize The maximum total size of all stored photo images before the least recently used are evicted.
+     */
+    public PhotoStoreConfiguration(final String directory, final DataSize maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+}
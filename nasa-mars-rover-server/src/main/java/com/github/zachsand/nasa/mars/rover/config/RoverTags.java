@@ -0,0 +1,80 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import com.github.zachsand.nasa.mars.rover.service.RoverCatalog;
+import lombok.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * {@link RoverTags} values of the {@code rover} tag of the metrics. Only the rovers of the current
+ * {@link RoverCatalog.Snapshot} are tagged by name, and at most {@link #MAX_ROVERS} of them, so made up names in paths
+ * can't create new time series. Any other name is tagged as {@code other}, which is also the case for every name until
+ * the first snapshot is loaded.
+ */
+@Component
+public class RoverTags {
+
+    /* The NASA Mars Rover API has a handful of rovers, past this many the rest are tagged as other */
+    private static final int MAX_ROVERS = 10;
+
+    private static final String NONE = "none";
+
+    private static final String OTHER = "other";
+
+    private final RoverCatalog roverCatalog;
+
+    /* Worked out again only when the snapshot is swapped */
+    private final AtomicReference<TaggedRovers> taggedRovers = new AtomicReference<>(new TaggedRovers(null, Set.of()));
+
+    /**
+     * {@link RoverTags} values of the {@code rover} tag of the metrics.
+     *
+     * @param roverCatalog {@link RoverCatalog} The catalog of the rovers that are tagged by name. Lazy, since the client
+     *                     the catalog retrieves the rovers with is itself instrumented with these tags.
+     */
+    public RoverTags(@Lazy final RoverCatalog roverCatalog) {
+        this.roverCatalog = roverCatalog;
+    }
+
+    /**
+     * @param roverName The name of a rover as requested, or null.
+     * @return The {@code rover} tag value for the name: the lower case name of a rover in the catalog, {@code other} for
+     * any other name, or {@code none} if there isn't one.
+     */
+    public String roverTag(String roverName) {
+        if(roverName == null) {
+            return NONE;
+        }
+        String rover = roverName.toLowerCase(Locale.ENGLISH);
+        return currentRovers().contains(rover) ? rover : OTHER;
+    }
+
+    private Set<String> currentRovers() {
+        RoverCatalog.Snapshot snapshot = roverCatalog.getSnapshot();
+        TaggedRovers current = taggedRovers.get();
+        if(current.getSnapshot() != snapshot) {
+            current = new TaggedRovers(snapshot, snapshot.getRoverNames().stream()
+                .sorted()
+                .limit(MAX_ROVERS)
+                .collect(Collectors.toUnmodifiableSet()));
+            taggedRovers.set(current);
+        }
+        return current.getRovers();
+    }
+
+    /**
+     * {@link TaggedRovers} the lower case names of the rovers tagged by name, and the snapshot they were taken from.
+     */
+    @Value
+    private static class TaggedRovers {
+
+        RoverCatalog.Snapshot snapshot;
+
+        Set<String> rovers;
+    }
+}
@@ -0,0 +1,382 @@
+package com.github.zachsand.nasa.mars.rover.index;
+
+import com.github.zachsand.nasa.mars.rover.model.Manifest;
+import com.github.zachsand.nasa.mars.rover.model.ManifestPhoto;
+import com.github.zachsand.nasa.mars.rover.model.ManifestRange;
+import com.github.zachsand.nasa.mars.rover.model.PhotosManifest;
+import com.github.zachsand.nasa.mars.rover.model.Versioned;
+import com.github.zachsand.nasa.mars.rover.util.MarsClock;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ManifestIndex} compact columnar form of a {@link PhotosManifest}, built once when the manifest is cached. Instead
+ * of a {@link ManifestPhoto} with its own earth date string and camera array per sol, every sol with photos is a row of
+ * parallel arrays for sol, epoch day and total photos, plus a bitmask over a per-rover dictionary of camera names. The
+ * {@link ManifestPhoto} for a sol or earth date is rebuilt from its row when requested, which is a constant time array
+ * access.
+ *
+ * Also holds prefix sums over sol of the photo counts and of the sols each camera was used on, so aggregates over any
+ * sol or earth date range take constant time per camera, and a {@link BitSet} over sol per camera, so the sols on which
+ * a combination of cameras were used are found with bitwise operations instead of scanning the manifest.
+ *
+ * The manifest is also checked against the {@link MarsClock} of the rover, which is only handed out if it dates every
+ * sol of the manifest the same way the manifest does.
+ *
+ * Every index has a version of its own, so responses derived from it are validated by the version rather than by
+ * serializing them. See {@link #versioned(Object)}.
+ */
+public class ManifestIndex {
+
+    private static final int NO_ROW = -1;
+
+    /* Makes versions of indexes loaded within the same millisecond unique */
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    /* Epoch day of a row whose earth date could not be parsed */
+    private static final int NO_EPOCH_DAY = Integer.MIN_VALUE;
+
+    /* The manifest summary, without the photos */
+    private final Manifest manifest;
+
+    /* Columns, one row per sol with photos in ascending sol order */
+    private final int[] sols;
+
+    private final int[] epochDays;
+
+    private final int[] totalPhotos;
+
+    /* Sorted, so cameras are listed alphabetically like the NASA Mars Rover API does */
+    private final String[] cameraNames;
+
+    /* Number of longs per row in cameraMasks */
+    private final int cameraWords;
+
+    /* Bit c of a row is set if cameraNames[c] was used on the sol of the row */
+    private final long[] cameraMasks;
+
+    /* Dense, indexed by sol */
+    private final int[] rowBySol;
+
+    /* Dense, indexed by epoch day minus firstEpochDay */
+    private final int[] rowByEpochDay;
+
+    private final long firstEpochDay;
+
+    /* Both indexed by day offset like rowByEpochDay, for turning an earth date range into a sol range */
+    private final int[] firstSolOnOrAfterDay;
+
+    private final int[] lastSolOnOrBeforeDay;
+
+    /* Indexed by sol + 1, so the sum over [startSol, endSol] is prefix[endSol + 1] - prefix[startSol] */
+    private final long[] photoCountPrefix;
+
+    private final int[] solCountPrefix;
+
+    /* One prefix array per entry of cameraNames */
+    private final int[][] cameraSolCountPrefix;
+
+    /* One bit set per entry of cameraNames, bit s is set if the camera was used on sol s */
+    private final BitSet[] cameraSolBits;
+
+    /* Null unless it agrees with every row */
+    private final MarsClock marsClock;
+
+    private final String version;
+
+    /* HTTP dates only have seconds, and are compared as such */
+    private final Instant loadedAt;
+
+    /**
+     * {@link ManifestIndex} compact columnar form of a {@link PhotosManifest}.
+     *
+     * @param photosManifest {@link PhotosManifest} The manifest to index.
+     */
+    public ManifestIndex(PhotosManifest photosManifest) {
+        Manifest source = photosManifest.getPhotoManifest();
+        manifest = new Manifest(source.getName(), source.getLandingDate(), source.getLaunchDate(), source.getStatus(),
+            source.getMaxSol(), source.getMaxDate(), source.getTotalPhotos(), null);
+
+        /* Negative sols can't be looked up, and a later duplicate of a sol replaces the earlier one */
+        SortedMap<Integer, ManifestPhoto> photosBySol = new TreeMap<>();
+        SortedMap<String, Integer> cameraIndexes = new TreeMap<>();
+        if(source.getPhotos() != null) {
+            for(ManifestPhoto photo : source.getPhotos()) {
+                if(photo.getSol() >= 0) {
+                    photosBySol.put(photo.getSol(), photo);
+                }
+            }
+        }
+        for(ManifestPhoto photo : photosBySol.values()) {
+            if(photo.getCameras() != null) {
+                for(String camera : photo.getCameras()) {
+                    cameraIndexes.putIfAbsent(camera, 0);
+                }
+            }
+        }
+        cameraNames = cameraIndexes.keySet().toArray(new String[0]);
+        for(int camera = 0; camera < cameraNames.length; camera++) {
+            cameraIndexes.put(cameraNames[camera], camera);
+        }
+        cameraWords = (cameraNames.length + Long.SIZE - 1) / Long.SIZE;
+
+        int rows = photosBySol.size();
+        sols = new int[rows];
+        epochDays = new int[rows];
+        totalPhotos = new int[rows];
+        cameraMasks = new long[rows * cameraWords];
+        int row = 0;
+        for(ManifestPhoto photo : photosBySol.values()) {
+            sols[row] = photo.getSol();
+            epochDays[row] = toEpochDay(photo.getEarthDate());
+            totalPhotos[row] = photo.getTotalPhotos();
+            if(photo.getCameras() != null) {
+                for(String camera : photo.getCameras()) {
+                    int index = cameraIndexes.get(camera);
+                    cameraMasks[row * cameraWords + index / Long.SIZE] |= 1L << index;
+                }
+            }
+            row++;
+        }
+
+        rowBySol = new int[rows == 0 ? 0 : sols[rows - 1] + 1];
+        Arrays.fill(rowBySol, NO_ROW);
+        int minEpochDay = Integer.MAX_VALUE;
+        int maxEpochDay = Integer.MIN_VALUE;
+        for(row = 0; row < rows; row++) {
+            rowBySol[sols[row]] = row;
+            if(epochDays[row] != NO_EPOCH_DAY) {
+                minEpochDay = Math.min(minEpochDay, epochDays[row]);
+                maxEpochDay = Math.max(maxEpochDay, epochDays[row]);
+            }
+        }
+
+        firstEpochDay = minEpochDay == Integer.MAX_VALUE ? 0 : minEpochDay;
+        rowByEpochDay = new int[minEpochDay == Integer.MAX_VALUE ? 0 : maxEpochDay - minEpochDay + 1];
+        Arrays.fill(rowByEpochDay, NO_ROW);
+        for(row = 0; row < rows; row++) {
+            if(epochDays[row] != NO_EPOCH_DAY) {
+                rowByEpochDay[(int) (epochDays[row] - firstEpochDay)] = row;
+            }
+        }
+
+        firstSolOnOrAfterDay = new int[rowByEpochDay.length];
+        lastSolOnOrBeforeDay = new int[rowByEpochDay.length];
+        int lastSol = -1;
+        for(int day = 0; day < rowByEpochDay.length; day++) {
+            if(rowByEpochDay[day] != NO_ROW) {
+                lastSol = sols[rowByEpochDay[day]];
+            }
+            lastSolOnOrBeforeDay[day] = lastSol;
+        }
+        int nextSol = Integer.MAX_VALUE;
+        for(int day = rowByEpochDay.length - 1; day >= 0; day--) {
+            if(rowByEpochDay[day] != NO_ROW) {
+                nextSol = sols[rowByEpochDay[day]];
+            }
+            firstSolOnOrAfterDay[day] = nextSol;
+        }
+
+        photoCountPrefix = new long[rowBySol.length + 1];
+        solCountPrefix = new int[rowBySol.length + 1];
+        cameraSolCountPrefix = new int[cameraNames.length][rowBySol.length + 1];
+        cameraSolBits = new BitSet[cameraNames.length];
+        for(int camera = 0; camera < cameraNames.length; camera++) {
+            cameraSolBits[camera] = new BitSet(rowBySol.length);
+        }
+        for(int sol = 0; sol < rowBySol.length; sol++) {
+            row = rowBySol[sol];
+            photoCountPrefix[sol + 1] = photoCountPrefix[sol] + (row == NO_ROW ? 0 : totalPhotos[row]);
+            solCountPrefix[sol + 1] = solCountPrefix[sol] + (row == NO_ROW ? 0 : 1);
+            for(int camera = 0; camera < cameraNames.length; camera++) {
+                boolean used = row != NO_ROW && hasCamera(row, camera);
+                cameraSolCountPrefix[camera][sol + 1] = cameraSolCountPrefix[camera][sol] + (used ? 1 : 0);
+                if(used) {
+                    cameraSolBits[camera].set(sol);
+                }
+            }
+        }
+
+        marsClock = MarsClock.forLandingDate(manifest.getLandingDate())
+            .filter(clock -> rows > 0 && agreesWith(clock))
+            .orElse(null);
+
+        Instant now = Instant.now();
+        version = Long.toString(now.toEpochMilli(), Character.MAX_RADIX) + "." + Long.toString(VERSIONS.incrementAndGet(), Character.MAX_RADIX);
+        loadedAt = now.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * @return {@link Manifest} The summary of the indexed manifest, without {@link Manifest#getPhotos()}.
+     */
+    public Manifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * @return {@link Optional} of the {@link MarsClock} of the rover, empty if the manifest dates any sol differently or
+     * has no sols to check it with.
+     */
+    public Optional<MarsClock> getMarsClock() {
+        return Optional.ofNullable(marsClock);
+    }
+
+    /**
+     * @return The number of sols with photos.
+     */
+    public int size() {
+        return sols.length;
+    }
+
+    /**
+     * @param value A response body derived from this index alone, together with the request it answers.
+     * @param <T> The type of the response body.
+     * @return {@link Versioned} of the response body, with the version of this index and when it was loaded.
+     */
+    public <T> Versioned<T> versioned(T value) {
+        return new Versioned<>(value, version, loadedAt);
+    }
+
+    /**
+     * Retrieves the {@link ManifestPhoto} for a sol.
+     *
+     * @param sol The sol to find the {@link ManifestPhoto} for.
+     * @return The {@link ManifestPhoto}, or {@code null} if no photos were taken on the sol.
+     */
+    public ManifestPhoto getBySol(int sol) {
+        return sol >= 0 && sol < rowBySol.length ? toManifestPhoto(rowBySol[sol]) : null;
+    }
+
+    /**
+     * Retrieves the {@link ManifestPhoto} for an earth date.
+     *
+     * @param epochDay The earth date as {@link LocalDate#toEpochDay()}.
+     * @return The {@link ManifestPhoto}, or {@code null} if no photos were taken on the earth date.
+     */
+    public ManifestPhoto getByEpochDay(long epochDay) {
+        long offset = epochDay - firstEpochDay;
+        return offset >= 0 && offset < rowByEpochDay.length ? toManifestPhoto(rowByEpochDay[(int) offset]) : null;
+    }
+
+    /**
+     * Summarizes the photos taken between two sols.
+     *
+     * @param startSol The first sol of the range, inclusive.
+     * @param endSol The last sol of the range, inclusive.
+     * @return {@link ManifestRange} with the number of sols with photos, the total photos, and the number of sols each
+     * camera was used on.
+     */
+    public ManifestRange summarizeSols(int startSol, int endSol) {
+        int first = Math.max(startSol, 0);
+        int last = Math.min(endSol, rowBySol.length - 1);
+
+        Map<String, Integer> cameraSols = new LinkedHashMap<>();
+        if(first > last) {
+            return new ManifestRange(startSol, endSol, 0, 0, cameraSols);
+        }
+
+        for(int camera = 0; camera < cameraNames.length; camera++) {
+            int sols = cameraSolCountPrefix[camera][last + 1] - cameraSolCountPrefix[camera][first];
+            if(sols > 0) {
+                cameraSols.put(cameraNames[camera], sols);
+            }
+        }
+        return new ManifestRange(startSol, endSol,
+            solCountPrefix[last + 1] - solCountPrefix[first],
+            photoCountPrefix[last + 1] - photoCountPrefix[first],
+            cameraSols);
+    }
+
+    /**
+     * Summarizes the photos taken between two earth dates, by summarizing the sols with photos within the dates.
+     *
+     * @param startEpochDay The first earth date of the range as {@link LocalDate#toEpochDay()}, inclusive.
+     * @param endEpochDay The last earth date of the range as {@link LocalDate#toEpochDay()}, inclusive.
+     * @return {@link ManifestRange} as in {@link #summarizeSols(int, int)}.
+     */
+    public ManifestRange summarizeEpochDays(long startEpochDay, long endEpochDay) {
+        long lastDay = rowByEpochDay.length - 1L;
+        long start = Math.max(startEpochDay - firstEpochDay, 0);
+        long end = Math.min(endEpochDay - firstEpochDay, lastDay);
+        if(start > end) {
+            return new ManifestRange(0, -1, 0, 0, new LinkedHashMap<>());
+        }
+        return summarizeSols(firstSolOnOrAfterDay[(int) start], lastSolOnOrBeforeDay[(int) end]);
+    }
+
+    /**
+     * Finds the sols on which a combination of cameras were used.
+     *
+     * @param cameras The camera names, as listed in the manifest.
+     * @param matchAll {@code true} for the sols on which all the cameras were used, {@code false} for the sols on which
+     *                 any of them was used.
+     * @return {@link BitSet} with a bit set for every matching sol, owned by the caller.
+     */
+    public BitSet findSolsWithCameras(Collection<String> cameras, boolean matchAll) {
+        BitSet sols = null;
+        for(String camera : cameras) {
+            int index = Arrays.binarySearch(cameraNames, camera);
+            if(index < 0) {
+                if(matchAll) {
+                    return new BitSet();
+                }
+            } else if(sols == null) {
+                sols = (BitSet) cameraSolBits[index].clone();
+            } else if(matchAll) {
+                sols.and(cameraSolBits[index]);
+            } else {
+                sols.or(cameraSolBits[index]);
+            }
+        }
+        return sols == null ? new BitSet() : sols;
+    }
+
+    private boolean agreesWith(MarsClock clock) {
+        for(int row = 0; row < sols.length; row++) {
+            if(epochDays[row] != NO_EPOCH_DAY && epochDays[row] != clock.toEpochDay(sols[row])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasCamera(int row, int camera) {
+        return (cameraMasks[row * cameraWords + camera / Long.SIZE] & (1L << camera)) != 0;
+    }
+
+    /* The camera names are shared with the dictionary, only the array is new */
+    private ManifestPhoto toManifestPhoto(int row) {
+        if(row == NO_ROW) {
+            return null;
+        }
+
+        int cameraCount = 0;
+        for(int word = 0; word < cameraWords; word++) {
+            cameraCount += Long.bitCount(cameraMasks[row * cameraWords + word]);
+        }
+        String[] cameras = new String[cameraCount];
+        int next = 0;
+        for(int camera = 0; camera < cameraNames.length && next < cameraCount; camera++) {
+            if(hasCamera(row, camera)) {
+                cameras[next++] = cameraNames[camera];
+            }
+        }
+
+        String earthDate = epochDays[row] == NO_EPOCH_DAY ? null : LocalDate.ofEpochDay(epochDays[row]).toString();
+        return new ManifestPhoto(sols[row], earthDate, totalPhotos[row], cameras);
+    }
+
+    /* Manifest earth dates are always in the NASA yyyy-MM-dd format, which is also what LocalDate#toString gives back */
+    private static int toEpochDay(String earthDate) {
+        try {
+            return earthDate == null ? NO_EPOCH_DAY : Math.toIntExact(LocalDate.parse(earthDate).toEpochDay());
+        } catch(DateTimeParseException | ArithmeticException e) {
+            return NO_EPOCH_DAY;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.zachsand.nasa.mars.rover.index;
+
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * {@link PhotoIdIndex} index of photo id to {@link PhotoIndexEntry}, filled from every {@link PhotoList} retrieved from
+ * the NASA Mars Rover API. The NASA Mars Rover API has no endpoint to find a photo by id, so this allows a photo that was
+ * listed before to be downloaded without listing the photos again.
+ *
+ * Ids are kept in an open addressing table of primitive ints so lookups don't box. Reads are lock free unless they race
+ * with a write.
+ */
+@Component
+public class PhotoIdIndex {
+
+    /* Photo ids start at 1, so 0 marks an empty slot */
+    private static final int EMPTY = 0;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    /* Roughly a hundred bytes per entry, mostly the image source url */
+    private static final int MAX_ENTRIES = 250_000;
+
+    private final StampedLock lock = new StampedLock();
+
+    private Table table = new Table(INITIAL_CAPACITY);
+
+    private int size;
+
+    /**
+     * Retrieves the {@link PhotoIndexEntry} for a photo id.
+     *
+     * @param id The id of the photo.
+     * @return The {@link PhotoIndexEntry}, or {@code null} if the photo id has not been seen.
+     */
+    public PhotoIndexEntry get(int id) {
+        if(id <= EMPTY) {
+            return null;
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        PhotoIndexEntry entry = table.find(id);
+        if(!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = table.find(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Adds every photo of a {@link PhotoList} to the index. Once the index is full it is cleared and starts over, which
+     * favours the photos that are being listed now.
+     *
+     * @param photoList {@link PhotoList} retrieved from the NASA Mars Rover API.
+     */
+    public void indexPhotos(PhotoList photoList) {
+        Photo[] photos = photoList.getPhotos();
+        if(photos == null || photos.length == 0) {
+            return;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            for(Photo photo : photos) {
+                if(photo.getId() <= EMPTY || photo.getImgSrc() == null) {
+                    continue;
+                }
+                if(size >= MAX_ENTRIES) {
+                    table = new Table(INITIAL_CAPACITY);
+                    size = 0;
+                }
+                if(table.put(photo.getId(), toEntry(photo))) {
+                    size++;
+                    if(size * 2 > table.keys.length) {
+                        table = table.resize(table.keys.length * 2);
+                    }
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The number of indexed photos.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static PhotoIndexEntry toEntry(Photo photo) {
+        /* There are only a handful of rovers and cameras, so share their names between entries */
+        String roverName = photo.getRover() == null || photo.getRover().getName() == null
+            ? null : photo.getRover().getName().toLowerCase(Locale.ENGLISH).intern();
+        String cameraName = photo.getCamera() == null || photo.getCamera().getName() == null
+            ? null : photo.getCamera().getName().intern();
+        return new PhotoIndexEntry(roverName, photo.getImgSrc(), cameraName, photo.getSol(), photo.getEarthDate());
+    }
+
+    /**
+     * Keys and values live in one object, so an optimistic reader always sees arrays of the same length.
+     */
+    private static final class Table {
+
+        private final int[] keys;
+
+        private final PhotoIndexEntry[] values;
+
+        private Table(int capacity) {
+            keys = new int[capacity];
+            values = new PhotoIndexEntry[capacity];
+        }
+
+        private PhotoIndexEntry find(int id) {
+            int mask = keys.length - 1;
+            int slot = mix(id) & mask;
+            /* Bounded, since a racing optimistic read may see a table that is being written to */
+            for(int probes = 0; probes < keys.length; probes++) {
+                int key = keys[slot];
+                if(key == id) {
+                    return values[slot];
+                }
+                if(key == EMPTY) {
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /* Returns true if the id was not in the table before */
+        private boolean put(int id, PhotoIndexEntry entry) {
+            int mask = keys.length - 1;
+            int slot = mix(id) & mask;
+            while(keys[slot] != EMPTY && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            boolean added = keys[slot] == EMPTY;
+            values[slot] = entry;
+            keys[slot] = id;
+            return added;
+        }
+
+        private Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for(int slot = 0; slot < keys.length; slot++) {
+                if(keys[slot] != EMPTY) {
+                    resized.put(keys[slot], values[slot]);
+                }
+            }
+            return resized;
+        }
+
+        /* Photo ids are sequential, so spread them out over the table */
+        private static int mix(int id) {
+            int hash = id * 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.zachsand.nasa.mars.rover.index;
+
+import lombok.Value;
+
+/**
+ * {@link PhotoIndexEntry} the parts of a photo's metadata needed to download it without querying the NASA Mars Rover API.
+ */
+@Value
+public class PhotoIndexEntry {
+
+    String roverName;
+
+    String imgSrc;
+
+    String cameraName;
+
+    int sol;
+
+    String earthDate;
+}
@@ -0,0 +1,41 @@
+package com.github.zachsand.nasa.mars.rover.job;
+
+import com.github.zachsand.nasa.mars.rover.model.DownloadJobRequest;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class JobEvent {
+
+    public enum Type {
+        SUBMITTED,
+        DAY_COMPLETED,
+        COMPLETED,
+        FAILED
+    }
+
+    private Type type;
+
+    private String jobId;
+
+    /* Only for SUBMITTED */
+    private DownloadJobRequest request;
+
+    /* Only for DAY_COMPLETED, the index of the sol or earth date within the requested range */
+    private Integer day;
+
+    /* Only for DAY_COMPLETED */
+    private Integer photos;
+
+    /* Only for DAY_COMPLETED, photos whose image couldn't be retrieved, null in logs written before it was recorded */
+    private Integer failedPhotos;
+
+    /* Only for FAILED */
+    private String message;
+
+    /* Only for COMPLETED and FAILED, epoch millis, null in logs written before it was recorded */
+    private Long finishedAt;
+}
@@ -0,0 +1,143 @@
+package com.github.zachsand.nasa.mars.rover.job;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link JobLog} append-only log of {@link JobEvent}s, one JSON object per line. The state of every job is rebuilt by
+ * replaying the log, so nothing is ever rewritten in place and an interrupted write can at most lose the last event.
+ * The events of jobs that are no longer kept are left out by {@link #rewrite(List)}, which replaces the whole log at once.
+ *
+ * All methods perform blocking file IO and should not be called from the event loop.
+ */
+public class JobLog implements Closeable {
+
+    private static final byte NEW_LINE = '\n';
+
+    private final Path path;
+
+    private final ObjectMapper objectMapper;
+
+    /* Only swapped by rewrite, while holding the lock */
+    private FileChannel channel;
+
+    /**
+     * {@link JobLog} append-only log of {@link JobEvent}s, creating the log file if it doesn't exist yet.
+     *
+     * @param path The log file.
+     * @param objectMapper {@link ObjectMapper} for writing and reading the events.
+     * @throws IOException If the log file can not be opened.
+     */
+    public JobLog(Path path, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        /* Only ever written at the end, since this is the only writer */
+        long size = channel.size();
+        channel.position(size);
+
+        /* Terminate a line that was cut off by a crash, so the next event starts on a line of its own */
+        if(size > 0) {
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.read(lastByte, size - 1);
+            if(lastByte.get(0) != NEW_LINE) {
+                channel.write(ByteBuffer.wrap(new byte[] {NEW_LINE}));
+            }
+        }
+    }
+
+    /**
+     * Reads back every event in the order they were appended. Lines that can't be read, like one that was cut off by a
+     * crash, are skipped.
+     *
+     * @return The {@link JobEvent}s in the log.
+     * @throws IOException If the log file can not be read.
+     */
+    public synchronized List<JobEvent> replay() throws IOException {
+        List<JobEvent> jobEvents = new ArrayList<>();
+        try(BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.isBlank()) {
+                    continue;
+                }
+                try {
+                    jobEvents.add(objectMapper.readValue(line, JobEvent.class));
+                } catch(JsonProcessingException e) {
+                    /* Not a complete event, so it never happened */
+                }
+            }
+        }
+        return jobEvents;
+    }
+
+    /**
+     * Appends an event and forces it to disk before returning.
+     *
+     * @param jobEvent {@link JobEvent} The event to append.
+     */
+    public synchronized void append(JobEvent jobEvent) {
+        try {
+            write(channel, jobEvent);
+            channel.force(false);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the log with only the given events. They are written to a temporary file first, which is then atomically
+     * moved into place, so a crash leaves either the old or the new log.
+     *
+     * @param jobEvents The {@link JobEvent}s to keep, in the order they were appended.
+     * @throws IOException If the new log can not be written or moved into place.
+     */
+    public synchronized void rewrite(List<JobEvent> jobEvents) throws IOException {
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try(FileChannel tempChannel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for(JobEvent jobEvent : jobEvents) {
+                    write(tempChannel, jobEvent);
+                }
+                tempChannel.force(false);
+            }
+            channel.close();
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+            if(!channel.isOpen()) {
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+        }
+    }
+
+    private void write(FileChannel target, JobEvent jobEvent) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(jobEvent);
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1).put(json).put(NEW_LINE).flip();
+        while(line.hasRemaining()) {
+            target.write(line);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,19 +1,19 @@
 package com.github.zachsand.nasa.mars.rover.model;
 
 import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+import java.beans.ConstructorProperties;
+
+@Value
+@AllArgsConstructor(onConstructor_ = @ConstructorProperties({"id", "name", "roverId", "fullName"}))
 public class Camera {
 
-    private int id;
+    int id;
 
-    private String name;
+    String name;
 
-    private int roverId;
+    int roverId;
 
-    private String fullName;
+    String fullName;
 }
@@ -0,0 +1,24 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CameraSols {
+
+    private String[] cameras;
+
+    /* Either all, for sols on which every camera was used, or any */
+    private String match;
+
+    private int page;
+
+    private int perPage;
+
+    private int totalSols;
+
+    private ManifestPhoto[] photos;
+}
@@ -0,0 +1,30 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DownloadJob {
+
+    private String id;
+
+    private DownloadJobRequest request;
+
+    private DownloadJobStatus status;
+
+    /* Number of sols or earth dates in the requested range */
+    private int totalDays;
+
+    private int completedDays;
+
+    private int downloadedPhotos;
+
+    /* Photos skipped because their image couldn't be retrieved */
+    private int failedPhotos;
+
+    /* Why the job failed, null otherwise */
+    private String message;
+}
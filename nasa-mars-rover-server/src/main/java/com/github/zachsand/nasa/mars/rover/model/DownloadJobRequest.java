@@ -0,0 +1,25 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DownloadJobRequest {
+
+    private String roverName;
+
+    /* Either a sol range or an earth date range, both ends inclusive */
+    private Integer startSol;
+
+    private Integer endSol;
+
+    private String startDate;
+
+    private String endDate;
+
+    /* Empty or missing for the photos of every camera */
+    private String[] cameras;
+}
@@ -0,0 +1,12 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+public enum DownloadJobStatus {
+
+    QUEUED,
+
+    RUNNING,
+
+    COMPLETED,
+
+    FAILED
+}
@@ -0,0 +1,24 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ManifestRange {
+
+    private int startSol;
+
+    private int endSol;
+
+    private int solsWithPhotos;
+
+    private long totalPhotos;
+
+    /* The manifest only lists which cameras were used on a sol, so this is the number of sols per camera */
+    private Map<String, Integer> cameraSols;
+}
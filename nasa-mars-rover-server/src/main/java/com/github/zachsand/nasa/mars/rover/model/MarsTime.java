@@ -0,0 +1,15 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MarsTime {
+
+    private int sol;
+
+    private String earthDate;
+}
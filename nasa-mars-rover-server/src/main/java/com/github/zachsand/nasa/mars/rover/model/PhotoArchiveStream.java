@@ -0,0 +1,17 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PhotoArchiveStream {
+
+    private String archiveName;
+
+    private Flux<DataBuffer> archiveData;
+}
@@ -0,0 +1,20 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PhotoImageStream {
+
+    private String photoName;
+
+    /* -1 when the image source didn't give a length */
+    private long contentLength;
+
+    private Flux<DataBuffer> imageData;
+}
@@ -0,0 +1,18 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PhotoMosaic {
+
+    private String photoName;
+
+    private byte[] imageData;
+
+    /* Photos that couldn't be retrieved or decoded, and are left out of the mosaic */
+    private int missingPhotos;
+}
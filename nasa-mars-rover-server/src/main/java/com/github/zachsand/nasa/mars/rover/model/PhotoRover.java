@@ -1,21 +1,21 @@
 package com.github.zachsand.nasa.mars.rover.model;
 
 import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+import java.beans.ConstructorProperties;
+
+@Value
+@AllArgsConstructor(onConstructor_ = @ConstructorProperties({"id", "name", "landingDate", "launchDate", "status"}))
 public class PhotoRover {
 
-    private int id;
+    int id;
 
-    private String name;
+    String name;
 
-    private String landingDate;
+    String landingDate;
 
-    private String launchDate;
+    String launchDate;
 
-    private String status;
+    String status;
 }
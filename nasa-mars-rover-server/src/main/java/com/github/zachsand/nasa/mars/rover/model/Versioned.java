@@ -0,0 +1,24 @@
+package com.github.zachsand.nasa.mars.rover.model;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * {@link Versioned} a response body derived from cached data, with the version of the data it was derived from. The
+ * same version always derives the same body for the same request, so the version validates the body without the body
+ * being serialized.
+ *
+ * @param <T> The type of the response body.
+ */
+@Value
+public class Versioned<T> {
+
+    T value;
+
+    /* Unique to the cached data the value was derived from */
+    String version;
+
+    /* When the cached data was loaded, to the second */
+    Instant lastModified;
+}
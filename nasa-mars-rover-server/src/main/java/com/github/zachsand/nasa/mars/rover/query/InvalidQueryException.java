@@ -0,0 +1,28 @@
+package com.github.zachsand.nasa.mars.rover.query;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * {@link InvalidQueryException} a request with query parameters that can't be parsed, answered with
+ * {@link HttpStatus#BAD_REQUEST}. Malformed queries are turned away before anything else happens and are easily sent
+ * in bulk, so no stack trace is filled in, which would be most of the cost of rejecting them.
+ */
+public class InvalidQueryException extends ResponseStatusException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * {@link InvalidQueryException} a request with query parameters that can't be parsed.
+     *
+     * @param reason The message of the error, sent in the response.
+     */
+    public InvalidQueryException(String reason) {
+        super(HttpStatus.BAD_REQUEST, reason);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,226 @@
+package com.github.zachsand.nasa.mars.rover.query;
+
+import com.github.zachsand.nasa.mars.rover.util.DateUtil;
+import com.github.zachsand.nasa.mars.rover.util.MarsClock;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.With;
+import org.springframework.util.MultiValueMap;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * {@link PhotoQuery} typed form of a rover photos query. The query parameters of a request are parsed and validated once,
+ * where the request comes in, and the same instance is handed down to the services and the {@code NasaRoverClient}.
+ *
+ * Queries are normalized, the rover name in lower case, the camera in upper case and the {@code earth_date} as its epoch
+ * day, so equivalent queries are equal and a query is the key of the cached responses for it. Any of the fields is null
+ * when it isn't given.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PhotoQuery {
+
+    String roverName;
+
+    Long epochDay;
+
+    Integer sol;
+
+    String camera;
+
+    @With
+    Integer page;
+
+    Integer perPage;
+
+    /* Returned by parseCount for a value that isn't a number */
+    private static final int NOT_A_COUNT = -1;
+
+    /**
+     * Parses the photo query parameters of a request, {@code earth_date}, {@code sol}, {@code camera}, {@code page} and
+     * {@code per_page}. Any other query parameters are left to the endpoints they belong to.
+     *
+     * @param roverName The name of the NASA Mars rover.
+     * @param queryParams The HTTP query parameters of the request.
+     * @return {@link PhotoQuery} of the request.
+     * @throws InvalidQueryException If a query parameter isn't of a valid format.
+     */
+    public static PhotoQuery parse(String roverName, MultiValueMap<String, String> queryParams) {
+        String earthDate = queryParams.getFirst("earth_date");
+        Long epochDay = earthDate == null ? null : parseEpochDay(earthDate, "Invalid earth_date format");
+
+        Integer sol = parseParam(queryParams.getFirst("sol"));
+        if(sol != null && sol == NOT_A_COUNT) {
+            throw new InvalidQueryException("Invalid sol format");
+        }
+
+        Integer page = parseParam(queryParams.getFirst("page"));
+        Integer perPage = parseParam(queryParams.getFirst("per_page"));
+        if((page != null && page == NOT_A_COUNT) || (perPage != null && perPage == NOT_A_COUNT)) {
+            throw new InvalidQueryException("Invalid page or per_page format");
+        }
+        if((page != null && page < 1) || (perPage != null && perPage < 1)) {
+            throw new InvalidQueryException("Invalid page or per_page");
+        }
+
+        return new PhotoQuery(normalizeRoverName(roverName), epochDay, sol, normalizeCamera(queryParams.getFirst("camera")),
+            page, perPage);
+    }
+
+    /**
+     * @param roverName The name of the NASA Mars rover.
+     * @return {@link PhotoQuery} of every photo of the rover, without a date.
+     */
+    public static PhotoQuery forRover(String roverName) {
+        return new PhotoQuery(normalizeRoverName(roverName), null, null, null, null, null);
+    }
+
+    /**
+     * @param roverName The name of the NASA Mars rover.
+     * @param sol The sol the photos were taken on.
+     * @return {@link PhotoQuery} of all the photos of a sol.
+     */
+    public static PhotoQuery forSol(String roverName, int sol) {
+        return new PhotoQuery(normalizeRoverName(roverName), null, sol, null, null, null);
+    }
+
+    /**
+     * @param roverName The name of the NASA Mars rover.
+     * @param earthDate {@link LocalDate} The date the photos were taken on.
+     * @return {@link PhotoQuery} of all the photos of an {@code earth_date}.
+     */
+    public static PhotoQuery forEarthDate(String roverName, LocalDate earthDate) {
+        return new PhotoQuery(normalizeRoverName(roverName), earthDate.toEpochDay(), null, null, null, null);
+    }
+
+    /**
+     * @param camera The name of the camera the photos were taken with, or null for every camera.
+     * @return The same query, only for the photos of the camera.
+     */
+    public PhotoQuery withCamera(String camera) {
+        return new PhotoQuery(roverName, epochDay, sol, normalizeCamera(camera), page, perPage);
+    }
+
+    /**
+     * Queries by sol are equivalent to queries by the {@code earth_date} the sol is dated on, so they are translated to
+     * share cached responses with them. Queries that already have an {@code earth_date} are left as they are.
+     *
+     * @param marsClock {@link MarsClock} of the rover of the query.
+     * @return The same query, by the {@code earth_date} of its sol instead of the sol.
+     */
+    public PhotoQuery withSolAsEarthDate(MarsClock marsClock) {
+        if(sol == null || epochDay != null) {
+            return this;
+        }
+        return new PhotoQuery(roverName, marsClock.toEpochDay(sol), null, camera, page, perPage);
+    }
+
+    /**
+     * Without a page the NASA Mars Rover API returns all the photos at once, so this is the query for every photo of the
+     * date of this query. Where both are given the {@code earth_date} is the date, and the sol is left out.
+     *
+     * @return The same query without {@code page} and {@code per_page}.
+     */
+    public PhotoQuery allPhotosOfDay() {
+        return new PhotoQuery(roverName, epochDay, epochDay != null ? null : sol, camera, null, null);
+    }
+
+    /**
+     * @return Whether the query has an {@code earth_date} or a {@code sol}.
+     */
+    public boolean hasDate() {
+        return epochDay != null || sol != null;
+    }
+
+    /**
+     * @return The {@code earth_date} in the format the NASA Mars Rover API expects, or null if it isn't given.
+     */
+    public String getEarthDate() {
+        return epochDay == null ? null : DateUtil.convertDateToNasaFormat(LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * @return The name of the date of the query in file names, its {@code earth_date}, otherwise its sol.
+     */
+    public String getDateName() {
+        return epochDay != null ? getEarthDate() : "sol_" + sol;
+    }
+
+    private static String normalizeRoverName(String roverName) {
+        return roverName.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static String normalizeCamera(String camera) {
+        return camera == null ? null : camera.toUpperCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Parses a number of zero or more from a query parameter of an endpoint that has query parameters of its own, the
+     * same way as the photo query parameters, so a malformed value costs neither a {@link NumberFormatException} nor a
+     * stack trace.
+     *
+     * @param value The value of the query parameter, or null if it isn't given.
+     * @param defaultValue The number if the query parameter isn't given.
+     * @param reason The message of the error if the value isn't a number of zero or more.
+     * @return The number.
+     * @throws InvalidQueryException If the value isn't a number of zero or more that fits in an int.
+     */
+    public static int parseCount(String value, int defaultValue, String reason) {
+        if(value == null) {
+            return defaultValue;
+        }
+        int count = parseCount(value);
+        if(count == NOT_A_COUNT) {
+            throw new InvalidQueryException(reason);
+        }
+        return count;
+    }
+
+    /**
+     * Parses a date from a query parameter of an endpoint that has query parameters of its own, in any of the formats
+     * of {@code earth_date}.
+     *
+     * @param value The value of the query parameter.
+     * @param reason The message of the error if the value isn't a date.
+     * @return The epoch day of the date.
+     * @throws InvalidQueryException If the value isn't a date.
+     */
+    public static long parseEpochDay(String value, String reason) {
+        long epochDay = DateUtil.parseEpochDay(value);
+        if(epochDay == DateUtil.INVALID_DATE) {
+            throw new InvalidQueryException(reason);
+        }
+        return epochDay;
+    }
+
+    private static Integer parseParam(String value) {
+        return value == null ? null : parseCount(value);
+    }
+
+    /**
+     * Parses a number of zero or more, by hand rather than with {@link Integer#parseInt(String)}, so a malformed value
+     * costs no exception.
+     *
+     * @return The number, or {@link #NOT_A_COUNT} if the value isn't a number that fits in an int.
+     */
+    private static int parseCount(String value) {
+        if(value.isEmpty()) {
+            return NOT_A_COUNT;
+        }
+        long count = 0;
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c < '0' || c > '9') {
+                return NOT_A_COUNT;
+            }
+            count = count * 10 + (c - '0');
+            if(count > Integer.MAX_VALUE) {
+                return NOT_A_COUNT;
+            }
+        }
+        return (int) count;
+    }
+}
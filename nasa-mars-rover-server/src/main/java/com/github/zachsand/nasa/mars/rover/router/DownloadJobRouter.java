@@ -0,0 +1,81 @@
+package com.github.zachsand.nasa.mars.rover.router;
+
+import com.github.zachsand.nasa.mars.rover.model.DownloadJob;
+import com.github.zachsand.nasa.mars.rover.model.DownloadJobRequest;
+import com.github.zachsand.nasa.mars.rover.model.PhotoArchiveStream;
+import com.github.zachsand.nasa.mars.rover.service.DownloadJobService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.accepted;
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+
+/**
+ * Router for handling the API requests for bulk photo download jobs.
+ */
+@Configuration
+public class DownloadJobRouter {
+
+    private final DownloadJobService downloadJobService;
+
+    /**
+     * Router for handling the API requests for bulk photo download jobs.
+     *
+     * @param downloadJobService {@link DownloadJobService} service for the bulk photo download job functionality.
+     */
+    public DownloadJobRouter(final DownloadJobService downloadJobService) {
+        this.downloadJobService = downloadJobService;
+    }
+
+    /**
+     * Routes and handles the endpoint for submitting a bulk photo download job from a {@link DownloadJobRequest}. The
+     * queued job is returned as a {@link DownloadJob}, whose id is used to follow its progress.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> submitDownloadJob() {
+        return
+            route(POST("/api/jobs"),
+                req -> accepted()
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                    .body(req.bodyToMono(DownloadJobRequest.class).flatMap(downloadJobService::submitJob), DownloadJob.class)
+            );
+    }
+
+    /**
+     * Routes and handles the endpoint for retrieving the progress of a bulk photo download job in the form of
+     * {@link DownloadJob}.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> getDownloadJob() {
+        return
+            route(GET("/api/jobs/{id}"),
+                req -> ok()
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                    .body(downloadJobService.getJob(req.pathVariable("id")), DownloadJob.class)
+            );
+    }
+
+    /**
+     * Routes and handles the endpoint for downloading the photos of a completed bulk photo download job as a ZIP
+     * archive, streamed to the response as a {@link PhotoArchiveStream}.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> downloadDownloadJobResults() {
+        return
+            route(GET("/api/jobs/{id}/results"),
+                req -> downloadJobService.streamJobResults(req.pathVariable("id"))
+                    .flatMap(photoArchiveStream -> ok()
+                        .header(HttpHeaders.CONTENT_TYPE, "application/zip")
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + photoArchiveStream.getArchiveName() + "\"")
+                        .body(BodyInserters.fromDataBuffers(photoArchiveStream.getArchiveData())))
+            );
+    }
+}
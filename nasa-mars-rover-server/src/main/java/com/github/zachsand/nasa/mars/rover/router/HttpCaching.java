@@ -0,0 +1,269 @@
+package com.github.zachsand.nasa.mars.rover.router;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.zachsand.nasa.mars.rover.model.Versioned;
+import com.github.zachsand.nasa.mars.rover.util.DateUtil;
+import lombok.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+
+/**
+ * {@link HttpCaching} HTTP caching for the responses of the {@link RoverRouter}: the {@link CacheControl} policies, and
+ * validators ({@code ETag} and {@code Last-Modified}) so that conditional requests are answered with
+ * {@code 304 Not Modified}.
+ *
+ * The validator of a response body is computed once per instance, and is remembered for as long as the instance is
+ * kept, like the photos in the caches of the services. Conditional requests for cached data are then answered without
+ * going to the NASA Mars Rover API and without serializing the data again. Response bodies that are derived anew for
+ * every request, like the ones answered from a cached manifest, are {@link Versioned} instead, and are validated by
+ * the version of the data they are derived from without being serialized at all.
+ */
+@Component
+public class HttpCaching {
+
+    /**
+     * For data that never changes once it exists, like photo images.
+     */
+    public static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic();
+
+    /**
+     * For data of dates before today, which only changes in the rare case NASA corrects it.
+     */
+    public static final CacheControl PAST_DATE = CacheControl.maxAge(Duration.ofDays(7)).cachePublic();
+
+    /**
+     * For data of today, or of a date that isn't known, which changes while new photos arrive.
+     */
+    public static final CacheControl RECENT = CacheControl.maxAge(Duration.ofMinutes(10)).cachePublic();
+
+    /**
+     * For the list of rovers, of which only the status and latest dates change.
+     */
+    public static final CacheControl ROVERS = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
+    /* Only as many as there are response bodies held on to elsewhere, the rest are collected with their instance */
+    private static final long MAX_VALIDATORS = 10_000;
+
+    private final ObjectMapper objectMapper;
+
+    /* Weak keys are compared by identity, so a validator belongs to exactly one instance of a response body */
+    private final Cache<Object, Validator> validators = Caffeine.newBuilder()
+        .weakKeys()
+        .maximumSize(MAX_VALIDATORS)
+        .build();
+
+    /**
+     * {@link HttpCaching} HTTP caching for the responses of the {@link RoverRouter}.
+     *
+     * @param objectMapper {@link ObjectMapper} The mapper the response bodies are written with, used to compute their
+     *                                        {@code ETag}.
+     */
+    public HttpCaching(final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param earthDate The {@code earth_date} the data of a response is for, or null if it isn't known.
+     * @return {@link #PAST_DATE} if the date is before today, otherwise {@link #RECENT}.
+     */
+    public static CacheControl forEarthDate(String earthDate) {
+        long epochDay = DateUtil.parseEpochDay(earthDate);
+        return forEpochDay(epochDay == DateUtil.INVALID_DATE ? null : epochDay);
+    }
+
+    /**
+     * @param epochDay The epoch day of the {@code earth_date} the data of a response is for, or null if it isn't known.
+     * @return {@link #PAST_DATE} if the date is before today, otherwise {@link #RECENT}.
+     */
+    public static CacheControl forEpochDay(Long epochDay) {
+        return epochDay != null && epochDay < LocalDate.now(ZoneOffset.UTC).toEpochDay() ? PAST_DATE : RECENT;
+    }
+
+    /**
+     * Responds with a JSON body, or with {@code 304 Not Modified} if the client already has it.
+     *
+     * @param req {@link ServerRequest} The request, with the conditional request headers.
+     * @param body The response body, written as JSON.
+     * @param cacheControl {@link CacheControl} The caching policy of the response.
+     * @return {@link Mono} of {@link ServerResponse}.
+     */
+    public Mono<ServerResponse> json(ServerRequest req, Object body, CacheControl cacheControl) {
+        Validator validator = validators.get(body, this::computeValidator);
+        return conditional(req, validator.getETag(), validator.getLastModified(), cacheControl, response -> response
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(body));
+    }
+
+    /**
+     * Responds with a JSON body derived from versioned data, or with {@code 304 Not Modified} if the client already has
+     * it. The {@code ETag} is made of the version of the data and the request, and the {@code Last-Modified} is when the
+     * data was loaded, so neither needs the body to be serialized.
+     *
+     * @param req {@link ServerRequest} The request, with the conditional request headers.
+     * @param versioned {@link Versioned} The response body, written as JSON, with the version of its data.
+     * @param cacheControl {@link CacheControl} The caching policy of the response.
+     * @return {@link Mono} of {@link ServerResponse}.
+     */
+    public Mono<ServerResponse> json(ServerRequest req, Versioned<?> versioned, CacheControl cacheControl) {
+        String eTag = "\"" + versioned.getVersion() + "-" + requestHash(req) + "\"";
+        return conditional(req, eTag, versioned.getLastModified(), cacheControl, response -> response
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(versioned.getValue()));
+    }
+
+    /**
+     * Responds with a JSON body projected from another response body, or with {@code 304 Not Modified} if the client
+     * already has it. The {@code ETag} is made of the one of the body it is projected from and the projection, so a
+     * conditional request is answered without projecting anything.
+     *
+     * @param req {@link ServerRequest} The request, with the conditional request headers.
+     * @param body The response body to project, written as JSON.
+     * @param projection Identifies the projection, the same for every request that projects the body the same way.
+     * @param cacheControl {@link CacheControl} The caching policy of the response.
+     * @param projector {@link Function} projecting the JSON of the body.
+     * @return {@link Mono} of {@link ServerResponse}.
+     */
+    public Mono<ServerResponse> projectedJson(ServerRequest req, Object body, String projection, CacheControl cacheControl,
+                                              Function<Flux<DataBuffer>, Flux<DataBuffer>> projector) {
+        Validator validator = validators.get(body, this::computeValidator);
+        String eTag = validator.getETag().substring(0, validator.getETag().length() - 1)
+            + "-" + Integer.toHexString(projection.hashCode()) + "\"";
+        return conditional(req, eTag, validator.getLastModified(), cacheControl, response -> response
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(BodyInserters.fromDataBuffers(projector.apply(
+                Mono.<DataBuffer>fromCallable(() -> DefaultDataBufferFactory.sharedInstance.wrap(objectMapper.writeValueAsBytes(body)))
+                    .flux()))));
+    }
+
+    /**
+     * Responds with a body that is only written while it is sent, like a stream or an archive, or with
+     * {@code 304 Not Modified} if the client already has it. The body can't be hashed up front, so the {@code ETag} is
+     * weak, and made of the version of the data the body is made from and the request.
+     *
+     * @param req {@link ServerRequest} The request, with the conditional request headers.
+     * @param version The version of the data the body is made from, the same whenever the same body would be written.
+     * @param cacheControl {@link CacheControl} The caching policy of the response.
+     * @param response {@link Function} completing the full response, only called if the client doesn't have it.
+     * @return {@link Mono} of {@link ServerResponse}.
+     */
+    public Mono<ServerResponse> streamed(ServerRequest req, String version, CacheControl cacheControl,
+                                         Function<ServerResponse.BodyBuilder, Mono<ServerResponse>> response) {
+        return conditional(req, "W/\"" + version + "-" + requestHash(req) + "\"", null, cacheControl, response);
+    }
+
+    /**
+     * Responds with a JPEG image, or with {@code 304 Not Modified} if the client already has it.
+     *
+     * @param req {@link ServerRequest} The request, with the conditional request headers.
+     * @param image The JPEG image data.
+     * @param contentDisposition The {@code Content-Disposition} of the response.
+     * @param cacheControl {@link CacheControl} The caching policy of the response.
+     * @return {@link Mono} of {@link ServerResponse}.
+     */
+    public Mono<ServerResponse> jpeg(ServerRequest req, byte[] image, String contentDisposition, CacheControl cacheControl) {
+        return jpeg(req, image, contentDisposition, cacheControl, headers -> { });
+    }
+
+    /**
+     * Responds with a JPEG image, or with {@code 304 Not Modified} if the client already has it.
+     *
+     * @param req {@link ServerRequest} The request, with the conditional request headers.
+     * @param image The JPEG image data.
+     * @param contentDisposition The {@code Content-Disposition} of the response.
+     * @param cacheControl {@link CacheControl} The caching policy of the response.
+     * @param headers {@link Consumer} adding any other headers of the full response.
+     * @return {@link Mono} of {@link ServerResponse}.
+     */
+    public Mono<ServerResponse> jpeg(ServerRequest req, byte[] image, String contentDisposition, CacheControl cacheControl,
+                                     Consumer<HttpHeaders> headers) {
+        Validator validator = validators.get(image, this::computeValidator);
+        return conditional(req, validator.getETag(), validator.getLastModified(), cacheControl, response -> response
+            .contentType(MediaType.IMAGE_JPEG)
+            .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition)
+            .headers(headers)
+            .contentLength(image.length)
+            .bodyValue(image));
+    }
+
+    /**
+     * Responds with {@code 304 Not Modified} if the client already has the response with the {@code ETag} or
+     * {@code Last-Modified}, without calling {@code response}. Otherwise {@code response} completes an {@code OK}
+     * response that already has the validators and the caching policy.
+     *
+     * @param req {@link ServerRequest} The request, with the conditional request headers.
+     * @param eTag The strong {@code ETag} of the response, quoted.
+     * @param lastModified {@link Instant} The {@code Last-Modified} of the response, or null if it isn't known.
+     * @param cacheControl {@link CacheControl} The caching policy of the response.
+     * @param response {@link Function} completing the full response, only called if the client doesn't have it.
+     * @return {@link Mono} of {@link ServerResponse}.
+     */
+    public Mono<ServerResponse> conditional(ServerRequest req, String eTag, Instant lastModified, CacheControl cacheControl,
+                                            Function<ServerResponse.BodyBuilder, Mono<ServerResponse>> response) {
+        Mono<ServerResponse> notModified = lastModified == null ? req.checkNotModified(eTag) : req.checkNotModified(lastModified, eTag);
+        return notModified
+            .flatMap(notModifiedResponse -> ServerResponse.from(notModifiedResponse).cacheControl(cacheControl).build())
+            .switchIfEmpty(Mono.defer(() -> {
+                ServerResponse.BodyBuilder fullResponse = ok().eTag(eTag).cacheControl(cacheControl);
+                if(lastModified != null) {
+                    fullResponse.lastModified(lastModified);
+                }
+                return response.apply(fullResponse);
+            }));
+    }
+
+    /* Every variant of a response has a query of its own */
+    private static String requestHash(ServerRequest req) {
+        String request = req.path() + "?" + req.uri().getRawQuery();
+        return Integer.toHexString(request.hashCode());
+    }
+
+    private Validator computeValidator(Object body) {
+        byte[] bytes;
+        if(body instanceof byte[]) {
+            bytes = (byte[]) body;
+        } else {
+            try {
+                bytes = objectMapper.writeValueAsBytes(body);
+            } catch(JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        /* HTTP dates only have seconds, and are compared as such */
+        return new Validator("\"" + DigestUtils.md5DigestAsHex(bytes) + "\"", Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    /**
+     * {@link Validator} the {@code ETag} of a response body, and when it was first seen as its {@code Last-Modified}.
+     */
+    @Value
+    private static class Validator {
+
+        String eTag;
+
+        Instant lastModified;
+    }
+}
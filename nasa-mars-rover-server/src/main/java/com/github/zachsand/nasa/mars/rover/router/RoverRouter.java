@@ -2,14 +2,42 @@ package com.github.zachsand.nasa.mars.rover.router;
 
 import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
 import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.InvalidQueryException;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import com.github.zachsand.nasa.mars.rover.service.PhotoArchiveService;
+import com.github.zachsand.nasa.mars.rover.service.PhotoDerivativeService;
 import com.github.zachsand.nasa.mars.rover.service.PhotoDownloadService;
+import com.github.zachsand.nasa.mars.rover.service.PhotoMosaicService;
+import com.github.zachsand.nasa.mars.rover.service.RoverCatalog;
 import com.github.zachsand.nasa.mars.rover.service.RoverManifestService;
+import com.github.zachsand.nasa.mars.rover.util.JsonFieldProjector;
+import com.github.zachsand.nasa.mars.rover.util.MarsClock;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
@@ -18,42 +46,81 @@ import static org.springframework.web.reactive.function.server.ServerResponse.ok
 /**
  * Router for handling the API requests to the server, similar to the controller for Spring MVC.
  * Handles routing the valid API requests to the appropriate handlers and services.
+ * Responses carry the caching headers of {@link HttpCaching}, and conditional requests are answered with
+ * {@code 304 Not Modified} where the response can be validated. The photo query parameters of a request are parsed into a
+ * {@link PhotoQuery} once, here, and malformed ones are answered with {@code 400 Bad Request} before any service is
+ * called. Photo queries by sol are translated to the earth date of the sol with the {@link MarsClock} of the rover once
+ * its manifest is cached, so they share cached responses with the queries by earth date.
  */
 @Configuration
 public class RoverRouter {
 
+    /* Number of photos left out of a mosaic because they couldn't be retrieved */
+    static final String MISSING_PHOTOS_HEADER = "X-Missing-Photos";
+
+    /* Status of a rover that is still taking photos */
+    private static final String ACTIVE_STATUS = "active";
+
     private final NasaRoverClient nasaRoverClient;
 
+    private final RoverCatalog roverCatalog;
+
     private final RoverManifestService roverManifestService;
 
     private final PhotoDownloadService photoDownloadService;
 
+    private final PhotoArchiveService photoArchiveService;
+
+    private final PhotoDerivativeService photoDerivativeService;
+
+    private final PhotoMosaicService photoMosaicService;
+
+    private final HttpCaching httpCaching;
+
     /**
      * Router for handling the API requests to the server, similar to the controller for Spring MVC.
      * Handles routing the valid API requests to the appropriate handlers and services.
      *
      * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param roverCatalog {@link RoverCatalog} The in-memory catalog of the rovers.
      * @param roverManifestService {@link RoverManifestService} service for the rover manifest functionality.
      * @param photoDownloadService {@link PhotoDownloadService} service for the rover photo download functionality.
+     * @param photoArchiveService {@link PhotoArchiveService} service for the rover photo archive download functionality.
+     * @param photoDerivativeService {@link PhotoDerivativeService} service for the resized rover photo download functionality.
+     * @param photoMosaicService {@link PhotoMosaicService} service for the rover photo mosaic functionality.
+     * @param httpCaching {@link HttpCaching} HTTP caching headers and conditional requests for the responses.
      */
-    public RoverRouter(final NasaRoverClient nasaRoverClient, final RoverManifestService roverManifestService,
-                       final PhotoDownloadService photoDownloadService) {
+    public RoverRouter(final NasaRoverClient nasaRoverClient, final RoverCatalog roverCatalog,
+                       final RoverManifestService roverManifestService, final PhotoDownloadService photoDownloadService,
+                       final PhotoArchiveService photoArchiveService, final PhotoDerivativeService photoDerivativeService,
+                       final PhotoMosaicService photoMosaicService, final HttpCaching httpCaching) {
         this.nasaRoverClient = nasaRoverClient;
+        this.roverCatalog = roverCatalog;
         this.roverManifestService = roverManifestService;
         this.photoDownloadService = photoDownloadService;
+        this.photoArchiveService = photoArchiveService;
+        this.photoDerivativeService = photoDerivativeService;
+        this.photoMosaicService = photoMosaicService;
+        this.httpCaching = httpCaching;
     }
 
     /**
      * Routes and handles the endpoint for retrieving all Nasa Mars Rover in the form of {@link RoverList}.
-     * Essentially a proxy API for the actual NASA Mars Rover API.
+     * Answered from the {@link RoverCatalog} with the response body serialized once per snapshot of the rovers.
      */
     @Bean
     public RouterFunction<ServerResponse> getRovers() {
         return
             route(GET("/api/rovers"),
-                req -> ok()
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
-                    .body(nasaRoverClient.getRovers(), RoverList.class));
+                req -> roverCatalog.currentSnapshot()
+                    .flatMap(snapshot -> httpCaching.conditional(req, snapshot.getETag(), snapshot.getLastModified(),
+                        HttpCaching.ROVERS, response -> {
+                            ByteBuffer json = snapshot.getJson();
+                            return response
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .contentLength(json.remaining())
+                                .bodyValue(json);
+                        })));
     }
 
     /**
@@ -64,46 +131,348 @@ public class RoverRouter {
     public RouterFunction<ServerResponse> getRoverPhotoManifestByDate() {
         return
             route(GET("/api/rovers/{roverName}/manifest"),
-                req -> ok()
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
-                    .body(
-                        roverManifestService.getRoverPhotoManifestByDate(req.pathVariable("roverName"), req.queryParams()),
-                        PhotosManifest.class
-                    )
+                req -> photoQuery(req)
+                    .flatMap(roverManifestService::getRoverPhotoManifestByDate)
+                    .flatMap(manifestPhoto -> httpCaching.json(req, manifestPhoto,
+                        HttpCaching.forEarthDate(manifestPhoto.getValue().getEarthDate())))
+            );
+    }
+
+    /**
+     * Routes and handles the endpoint for translating between a sol and an earth date of a Nasa Mars Rover in the form of
+     * {@link MarsTime}. Computed from the landing date of the rover rather than looked up in its manifest, so days
+     * without photos are translated too. Cached by the translated earth date, like any other response of a date.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> getRoverMarsTime() {
+        return
+            route(GET("/api/rovers/{roverName}/time"),
+                req -> photoQuery(req)
+                    .flatMap(roverManifestService::getMarsTime)
+                    .flatMap(marsTime -> httpCaching.json(req, marsTime, HttpCaching.forEarthDate(marsTime.getValue().getEarthDate())))
+            );
+    }
+
+    /**
+     * Routes and handles the endpoint for summarizing the Nasa Mars Rover manifest over a sol or earth date range in the
+     * form of {@link ManifestRange}. Cached by the earth date of the end of the range, so a range that is over is kept
+     * as long as a past date.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> getRoverPhotoManifestRange() {
+        return
+            route(GET("/api/rovers/{roverName}/manifest/range"),
+                req -> roverManifestService.getRoverPhotoManifestRange(req.pathVariable("roverName"), req.queryParams())
+                    .flatMap(manifestRange -> httpCaching.json(req, manifestRange, HttpCaching.forEpochDay(
+                        roverManifestService.findMarsClock(req.pathVariable("roverName"))
+                            .map(marsClock -> marsClock.toEpochDay(manifestRange.getValue().getEndSol()))
+                            .orElse(null))))
+            );
+    }
+
+    /**
+     * Routes and handles the endpoint for finding the sols on which a combination of cameras took photos in the form of
+     * {@link CameraSols}. Spans every sol of the rover, so it is only cached as long as a past date once the rover is no
+     * longer active.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> getRoverPhotoManifestByCameras() {
+        return
+            route(GET("/api/rovers/{roverName}/manifest/cameras"),
+                req -> roverManifestService.getRoverPhotoManifestByCameras(req.pathVariable("roverName"), req.queryParams())
+                    .flatMap(cameraSols -> roverCatalog.currentSnapshot().flatMap(snapshot -> httpCaching.json(req, cameraSols,
+                        snapshot.findRover(req.pathVariable("roverName"))
+                            .filter(rover -> !ACTIVE_STATUS.equalsIgnoreCase(rover.getStatus()))
+                            .map(rover -> HttpCaching.PAST_DATE)
+                            .orElse(HttpCaching.RECENT))))
             );
     }
 
     /**
      * Routes and handles the endpoint for retrieving the Nasa Mars Rover photos for a specific date in the form of
      * {@link PhotoList}.
-     * Essentially a proxy API for the actual NASA Mars Rover API.
+     * Essentially a proxy API for the actual NASA Mars Rover API. In relay mode the response body of the NASA Mars Rover
+     * API is forwarded as it arrives, without being read into a {@link PhotoList} first. With {@code fields} only those
+     * fields of every photo are sent, projected from the cached {@link PhotoList}, and validated by its {@code ETag} and
+     * the fields. Relayed responses are validated like {@link #photosOfDate}.
      */
     @Bean
     public RouterFunction<ServerResponse> getRoverPhotos() {
         return
             route(GET("/api/rovers/{roverName}/photos"),
-                req -> ok()
-                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                req -> photoQuery(req).map(this::bySolEarthDate).flatMap(photoQuery -> {
+                    Optional<String> fields = req.queryParam("fields");
+                    if(fields.isPresent()) {
+                        Set<String> projectedFields = Arrays.stream(fields.get().split(","))
+                            .map(String::trim)
+                            .filter(field -> !field.isEmpty())
+                            .collect(Collectors.toSet());
+                        if(projectedFields.isEmpty()) {
+                            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid fields. At least one field is required"));
+                        }
+                        return nasaRoverClient.getRoverPhotos(photoQuery)
+                            .flatMap(photoList -> httpCaching.projectedJson(req, photoList,
+                                String.join(",", new TreeSet<>(projectedFields)), forPhotoList(photoList, photoQuery),
+                                photoListJson -> JsonFieldProjector.project(photoListJson, "photos", projectedFields)));
+                    }
+                    if(nasaRoverClient.isPhotosRelay()) {
+                        return photosOfDate(req, photoQuery, response -> nasaRoverClient.relayRoverPhotos(photoQuery)
+                            .flatMap(responseEntity -> response
+                                .contentType(Optional.ofNullable(responseEntity.getHeaders().getContentType())
+                                    .orElse(MediaType.APPLICATION_JSON))
+                                .body(BodyInserters.fromDataBuffers(responseEntity.getBody()))));
+                    }
+                    return nasaRoverClient.getRoverPhotos(photoQuery)
+                        .flatMap(photoList -> httpCaching.json(req, photoList, forPhotoList(photoList, photoQuery)));
+                })
+            );
+    }
+
+    /**
+     * The caching policy of a {@link PhotoList}, by the earth date of its photos, or of the query if it has none.
+     */
+    private static CacheControl forPhotoList(PhotoList photoList, PhotoQuery photoQuery) {
+        return photoList.getPhotos() != null && photoList.getPhotos().length > 0
+            ? HttpCaching.forEarthDate(photoList.getPhotos()[0].getEarthDate())
+            : HttpCaching.forEpochDay(photoQuery.getEpochDay());
+    }
+
+    /**
+     * Responds with the photos of a date in a form that is only written while it is sent, like a relayed response, a
+     * stream or an archive of them. For dates before today it is validated by the manifest entry of the date, whose
+     * number of photos and cameras change whenever its photos do. The manifest is refreshed less often than today's
+     * photos arrive, so responses of today, and of dates without a manifest entry, only get the caching policy.
+     *
+     * @param response {@link Function} completing the full response, only called if the client doesn't have it.
+     */
+    private Mono<ServerResponse> photosOfDate(ServerRequest req, PhotoQuery photoQuery,
+                                              Function<ServerResponse.BodyBuilder, Mono<ServerResponse>> response) {
+        CacheControl cacheControl = HttpCaching.forEpochDay(photoQuery.getEpochDay());
+        if(cacheControl != HttpCaching.PAST_DATE) {
+            return response.apply(ok().cacheControl(cacheControl));
+        }
+        return roverManifestService.getRoverPhotoManifestByDate(photoQuery)
+            .map(manifestPhoto -> Optional.of(manifestPhoto.getValue().getSol() + "-" + manifestPhoto.getValue().getTotalPhotos()
+                + "-" + Integer.toHexString(Arrays.hashCode(manifestPhoto.getValue().getCameras()))))
+            .onErrorReturn(Optional.empty())
+            .flatMap(version -> version.isPresent()
+                ? httpCaching.streamed(req, version.get(), cacheControl, response)
+                : response.apply(ok().cacheControl(cacheControl)));
+    }
+
+    /**
+     * Routes and handles the endpoint for streaming the Nasa Mars Rover photos for a specific date across all pages, one
+     * {@link Photo} at a time as each page arrives. Sent as Server-Sent Events if the client accepts
+     * {@code text/event-stream}, and as newline delimited JSON otherwise. Validated like {@link #photosOfDate}.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> streamRoverPhotos() {
+        return
+            route(GET("/api/rovers/{roverName}/photos/stream"),
+                req -> photoQuery(req).map(this::bySolEarthDate).flatMap(photoQuery -> photosOfDate(req, photoQuery, response -> response
+                    .contentType(req.headers().accept().contains(MediaType.TEXT_EVENT_STREAM)
+                        ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
                     .body(
-                        nasaRoverClient.getRoverPhotos(req.pathVariable("roverName"), req.queryParams()),
-                        PhotoList.class
-                    )
+                        nasaRoverClient.streamRoverPhotos(photoQuery),
+                        Photo.class
+                    )))
             );
     }
 
     /**
      * Routes and handles the endpoint for retrieving and downloading the Nasa Mars Rover photo for a specific date and
-     * {@link Photo#getId()} in the form of a {@link PhotoImage}.
+     * {@link Photo#getId()}. The image data is streamed to the response as a {@link PhotoImageStream} rather than
+     * buffered as a whole {@link PhotoImage}. With {@code width}, {@code height} or {@code quality} a resized copy of the
+     * photo is downloaded instead. Photo images never change, so a client that already has one is answered with
+     * {@code 304 Not Modified} before the photo is even looked up.
+     *
+     * A {@code Range} is answered with {@code 206 Partial Content}, unless an {@code If-Range} doesn't match. Photos that
+     * were downloaded before are sent straight from their file in the on-disk photo store, and the ranges of any other
+     * photo are retrieved from the image source.
      */
     @Bean
     public RouterFunction<ServerResponse> downloadRoverPhoto() {
         return
             route(GET("/api/rovers/{roverName}/photo/{id}"),
-                req -> photoDownloadService.downloadPhoto(req.pathVariable("roverName"), req.pathVariable("id"), req.queryParams())
-                    .flatMap(photoImage -> ServerResponse.ok()
-                        .header(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG.toString())
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + photoImage.getPhotoName() + "\"")
-                        .bodyValue(photoImage.getImageData()))
+                req -> photoQuery(req).map(this::bySolEarthDate).flatMap(photoQuery -> {
+                    String id = req.pathVariable("id");
+                    boolean derivative = PhotoDerivativeService.isDerivativeRequest(req.queryParams());
+                    /* The image of a photo never changes, so the photo and the requested size are all there is to it */
+                    String eTag = "\"" + photoQuery.getRoverName() + "-" + id + (derivative
+                        ? "-" + req.queryParam("width").orElse("") + "x" + req.queryParam("height").orElse("")
+                            + "-" + req.queryParam("quality").orElse("")
+                        : "") + "\"";
+                    boolean range = isRangeRequest(req, eTag);
+                    return httpCaching.conditional(req, eTag, null, HttpCaching.IMMUTABLE, response -> {
+                        response.header(HttpHeaders.ACCEPT_RANGES, "bytes");
+                        if(derivative) {
+                            return downloadRoverPhotoDerivative(req, photoQuery, response, range);
+                        }
+                        return range
+                            ? downloadRoverPhotoRange(req, photoQuery, response, eTag)
+                            : streamRoverPhoto(req, photoQuery, response);
+                    });
+                })
+            );
+    }
+
+    /**
+     * Whether to answer only the requested ranges. Photo responses have no {@code Last-Modified}, so an {@code If-Range}
+     * only matches the strong {@code ETag} of the photo.
+     */
+    private static boolean isRangeRequest(ServerRequest req, String eTag) {
+        if(req.headers().header(HttpHeaders.RANGE).isEmpty()) {
+            return false;
+        }
+        List<String> ifRange = req.headers().header(HttpHeaders.IF_RANGE);
+        return ifRange.isEmpty() || ifRange.get(0).equals(eTag);
+    }
+
+    private Mono<ServerResponse> streamRoverPhoto(ServerRequest req, PhotoQuery photoQuery, ServerResponse.BodyBuilder response) {
+        return photoDownloadService.streamPhoto(photoQuery, req.pathVariable("id"))
+            .flatMap(photoImageStream -> {
+                response
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG.toString())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + photoImageStream.getPhotoName() + "\"");
+                if(photoImageStream.getContentLength() >= 0) {
+                    response.contentLength(photoImageStream.getContentLength());
+                }
+                return response.body(BodyInserters.fromDataBuffers(photoImageStream.getImageData()));
+            });
+    }
+
+    /**
+     * Answers the requested ranges of a photo. A stored photo is sent as a {@link FileSystemResource}, of which a single
+     * range is sent as a zero-copy file region. Any other photo has its ranges relayed from the image source.
+     */
+    private Mono<ServerResponse> downloadRoverPhotoRange(ServerRequest req, PhotoQuery photoQuery,
+                                                         ServerResponse.BodyBuilder response, String eTag) {
+        String roverName = photoQuery.getRoverName();
+        String id = req.pathVariable("id");
+        String photoName = roverName + "_" + id + ".jpg";
+        return photoDownloadService.findStoredPhoto(roverName, id)
+            .flatMap(path -> rangesOf(req, response
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG.toString())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + photoName + "\""),
+                new FileSystemResource(path)))
+            .switchIfEmpty(Mono.defer(() -> photoDownloadService.relayPhotoRange(photoQuery, id,
+                    req.headers().header(HttpHeaders.RANGE).get(0))
+                .flatMap(responseEntity -> {
+                    ServerResponse.BodyBuilder relayed = ServerResponse.status(responseEntity.getStatusCode())
+                        .headers(headers -> {
+                            headers.addAll(HttpHeaders.CONTENT_TYPE, responseEntity.getHeaders().getOrEmpty(HttpHeaders.CONTENT_TYPE));
+                            headers.addAll(HttpHeaders.CONTENT_LENGTH, responseEntity.getHeaders().getOrEmpty(HttpHeaders.CONTENT_LENGTH));
+                            headers.addAll(HttpHeaders.CONTENT_RANGE, responseEntity.getHeaders().getOrEmpty(HttpHeaders.CONTENT_RANGE));
+                        })
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + photoName + "\"")
+                        .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+                    /* Only the bytes of the photo never change, not a 416 or whatever else the image source answered */
+                    if(responseEntity.getStatusCode() == HttpStatus.OK || responseEntity.getStatusCode() == HttpStatus.PARTIAL_CONTENT) {
+                        relayed.eTag(eTag).cacheControl(HttpCaching.IMMUTABLE);
+                    }
+                    return relayed.body(BodyInserters.fromDataBuffers(responseEntity.getBody()));
+                })));
+    }
+
+    /**
+     * Answers the requested ranges of a {@link Resource}. Spring takes care of the ranges and of
+     * {@code multipart/byteranges} for more than one range, but only answers ranges that can't be parsed with
+     * {@code 416 Range Not Satisfiable}, so ranges past the end are checked here.
+     */
+    private static Mono<ServerResponse> rangesOf(ServerRequest req, ServerResponse.BodyBuilder response, Resource resource) {
+        long contentLength;
+        try {
+            contentLength = resource.contentLength();
+        } catch(IOException e) {
+            return Mono.error(e);
+        }
+        try {
+            HttpRange.toResourceRegions(req.headers().asHttpHeaders().getRange(), resource);
+        } catch(IllegalArgumentException e) {
+            return ServerResponse.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength)
+                .build();
+        }
+        return response.body(BodyInserters.fromResource(resource));
+    }
+
+    /**
+     * Downloads a resized copy of a photo. Resized copies are held in memory, so their ranges are cut from a
+     * {@link ByteArrayResource}.
+     */
+    private Mono<ServerResponse> downloadRoverPhotoDerivative(ServerRequest req, PhotoQuery photoQuery,
+                                                              ServerResponse.BodyBuilder response, boolean range) {
+        return photoDerivativeService.downloadPhotoDerivative(photoQuery, req.pathVariable("id"), req.queryParams())
+            .flatMap(photoImage -> {
+                response
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.IMAGE_JPEG.toString())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + photoImage.getPhotoName() + "\"");
+                return range
+                    ? rangesOf(req, response, new ByteArrayResource(photoImage.getImageData()))
+                    : response.contentLength(photoImage.getImageData().length).bodyValue(photoImage.getImageData());
+            });
+    }
+
+    /**
+     * Routes and handles the endpoint for downloading all the Nasa Mars Rover photos for a specific date as a ZIP
+     * archive. The archive is streamed to the response as a {@link PhotoArchiveStream} while the photos are retrieved.
+     * Validated like {@link #photosOfDate}.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> downloadRoverPhotoArchive() {
+        return
+            route(GET("/api/rovers/{roverName}/photos/zip"),
+                req -> photoQuery(req).map(this::bySolEarthDate).flatMap(photoQuery -> photosOfDate(req, photoQuery,
+                    response -> photoArchiveService.streamPhotoArchive(photoQuery)
+                        .flatMap(photoArchiveStream -> response
+                            .header(HttpHeaders.CONTENT_TYPE, "application/zip")
+                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + photoArchiveStream.getArchiveName() + "\"")
+                            .body(BodyInserters.fromDataBuffers(photoArchiveStream.getArchiveData())))))
+            );
+    }
+
+    /**
+     * Routes and handles the endpoint for retrieving a mosaic of all the Nasa Mars Rover photos for a specific date as a
+     * single JPEG {@link PhotoMosaic}, with a thumbnail of every photo. A mosaic with photos missing says how many in
+     * the {@value #MISSING_PHOTOS_HEADER} header, and is only cached briefly.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> getRoverPhotoMosaic() {
+        return
+            route(GET("/api/rovers/{roverName}/photos/mosaic"),
+                req -> photoQuery(req).map(this::bySolEarthDate).flatMap(photoQuery -> photoMosaicService.getPhotoMosaic(photoQuery, req.queryParams())
+                    .flatMap(photoMosaic -> httpCaching.jpeg(req, photoMosaic.getImageData(),
+                        "inline; filename=\"" + photoMosaic.getPhotoName() + "\"",
+                        photoMosaic.getMissingPhotos() > 0 ? HttpCaching.RECENT : HttpCaching.forEpochDay(photoQuery.getEpochDay()),
+                        headers -> {
+                            if(photoMosaic.getMissingPhotos() > 0) {
+                                headers.set(MISSING_PHOTOS_HEADER, String.valueOf(photoMosaic.getMissingPhotos()));
+                            }
+                        })))
             );
     }
+
+    /**
+     * Parses the {@link PhotoQuery} of a request, which is all the services get to see of its photo query parameters.
+     *
+     * @return {@link Mono} of {@link PhotoQuery}, or {@link Mono#error(Throwable)} with {@link InvalidQueryException} if
+     * the query parameters aren't valid.
+     */
+    private static Mono<PhotoQuery> photoQuery(ServerRequest req) {
+        try {
+            return Mono.just(PhotoQuery.parse(req.pathVariable("roverName"), req.queryParams()));
+        } catch(InvalidQueryException e) {
+            return Mono.error(e);
+        }
+    }
+
+    /**
+     * Translates a photo query by sol to the earth date of the sol, if the {@link MarsClock} of the rover is known.
+     * Only the cached manifest is consulted, so this never waits on the NASA Mars Rover API.
+     */
+    private PhotoQuery bySolEarthDate(PhotoQuery photoQuery) {
+        return photoQuery.getSol() == null ? photoQuery : roverManifestService.findMarsClock(photoQuery.getRoverName())
+            .map(photoQuery::withSolAsEarthDate)
+            .orElse(photoQuery);
+    }
 }
@@ -0,0 +1,595 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.config.DownloadJobConfiguration;
+import com.github.zachsand.nasa.mars.rover.job.JobEvent;
+import com.github.zachsand.nasa.mars.rover.job.JobLog;
+import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import com.github.zachsand.nasa.mars.rover.util.DateUtil;
+import com.github.zachsand.nasa.mars.rover.util.ZipArchiveWriter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link DownloadJobService} service for bulk photo downloads that span more sols or earth dates than fit in a single
+ * request. A job is submitted, runs in the background, and its photos are downloaded as a ZIP archive once it completed.
+ *
+ * Jobs wait in a queue and at most {@link DownloadJobConfiguration#getMaxConcurrentJobs()} run at the same time. The
+ * photos of every job are written to its own directory, and each step of a job is recorded in a {@link JobLog}. After a
+ * restart the log is replayed, and unfinished jobs continue with the first sol or earth date that wasn't completed yet,
+ * skipping any photo that was already written. A photo whose image still can't be retrieved after
+ * {@link #PHOTO_RETRIES} retries is skipped and counted as failed, rather than failing the whole job.
+ *
+ * Finished jobs are kept for {@link DownloadJobConfiguration#getRetention()}, and at most
+ * {@link DownloadJobConfiguration#getMaxFinishedJobs()} of them. Past that they are forgotten, their directory is deleted,
+ * and their events are left out of the {@link JobLog} the next time it is replayed.
+ */
+@Service
+public class DownloadJobService {
+
+    private static final String JOB_LOG_NAME = "jobs.log";
+
+    private static final String PHOTO_EXTENSION = ".jpg";
+
+    /* Number of images of a job retrieved from the image source at the same time */
+    private static final int PHOTO_CONCURRENCY = 4;
+
+    private static final int PHOTO_RETRIES = 2;
+
+    /* How often finished jobs are checked against the retention, besides whenever a job finishes */
+    private static final Duration EVICTION_INTERVAL = Duration.ofMinutes(10);
+
+    /* The photos of a job are streamed into the results archive in parts of this size */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /* Rover names become part of file names, so only plain names are allowed */
+    private static final Pattern VALID_ROVER_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final NasaRoverClient nasaRoverClient;
+
+    private final PhotoDownloadService photoDownloadService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Path directory;
+
+    private final int maxConcurrentJobs;
+
+    private final int maxDays;
+
+    private final Duration retention;
+
+    private final int maxFinishedJobs;
+
+    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    /* Guarded by itself, since jobs are submitted from many threads and a sink only allows one emitter at a time */
+    private final Sinks.Many<JobState> jobQueue = Sinks.many().unicast().onBackpressureBuffer();
+
+    /* For the blocking file IO of jobs, so it stays off the event loop and the shared bounded elastic scheduler */
+    private Scheduler jobScheduler;
+
+    private JobLog jobLog;
+
+    private Disposable jobRunner;
+
+    private Disposable jobEvictor;
+
+    /**
+     * {@link DownloadJobService} service for bulk photo downloads.
+     *
+     * @param downloadJobConfiguration {@link DownloadJobConfiguration} Configuration for the job directory and limits.
+     * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param photoDownloadService {@link PhotoDownloadService} service for retrieving the image data of each photo.
+     * @param objectMapper {@link ObjectMapper} for writing and reading the {@link JobLog}.
+     */
+    public DownloadJobService(final DownloadJobConfiguration downloadJobConfiguration, final NasaRoverClient nasaRoverClient,
+                              final PhotoDownloadService photoDownloadService, final ObjectMapper objectMapper) {
+        this.nasaRoverClient = nasaRoverClient;
+        this.photoDownloadService = photoDownloadService;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(downloadJobConfiguration.getDirectory()).toAbsolutePath();
+        this.maxConcurrentJobs = downloadJobConfiguration.getMaxConcurrentJobs();
+        this.maxDays = downloadJobConfiguration.getMaxDays();
+        this.retention = downloadJobConfiguration.getRetention();
+        this.maxFinishedJobs = downloadJobConfiguration.getMaxFinishedJobs();
+    }
+
+    /**
+     * Replays the {@link JobLog} to restore every job that is still kept, queues the jobs that didn't finish, and starts
+     * running jobs. The log is rewritten with only the events of the kept jobs, and the directories of any other jobs are
+     * deleted.
+     *
+     * @throws IOException If the job directory or log can not be created or read.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        jobScheduler = Schedulers.newBoundedElastic(maxConcurrentJobs * PHOTO_CONCURRENCY,
+            Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "download-jobs");
+        jobLog = new JobLog(directory.resolve(JOB_LOG_NAME), objectMapper);
+
+        /* Insertion ordered, so unfinished jobs are queued again in the order they were submitted */
+        Map<String, JobState> replayedJobs = new LinkedHashMap<>();
+        List<JobEvent> jobEvents = jobLog.replay();
+        long startedAt = System.currentTimeMillis();
+        for(JobEvent jobEvent : jobEvents) {
+            if(jobEvent.getType() == JobEvent.Type.SUBMITTED) {
+                try {
+                    replayedJobs.put(jobEvent.getJobId(), createJobState(jobEvent.getJobId(), jobEvent.getRequest()));
+                } catch(ResponseStatusException e) {
+                    /* Can't be run anymore, so it is forgotten */
+                }
+                continue;
+            }
+
+            JobState jobState = replayedJobs.get(jobEvent.getJobId());
+            if(jobState == null) {
+                continue;
+            }
+            /* Jobs that finished before it was recorded are kept for the retention from now on */
+            if(jobEvent.getFinishedAt() == null
+                && (jobEvent.getType() == JobEvent.Type.COMPLETED || jobEvent.getType() == JobEvent.Type.FAILED)) {
+                jobEvent.setFinishedAt(startedAt);
+            }
+            switch(jobEvent.getType()) {
+                case DAY_COMPLETED:
+                    jobState.completeDay(jobEvent.getDay(), jobEvent.getPhotos(),
+                        Optional.ofNullable(jobEvent.getFailedPhotos()).orElse(0));
+                    break;
+                case COMPLETED:
+                    jobState.complete(jobEvent.getFinishedAt());
+                    break;
+                case FAILED:
+                    jobState.fail(jobEvent.getMessage(), jobEvent.getFinishedAt());
+                    break;
+                default:
+                    break;
+            }
+        }
+        jobs.putAll(replayedJobs);
+        evictFinishedJobs();
+        jobLog.rewrite(jobEvents.stream()
+            .filter(jobEvent -> jobs.containsKey(jobEvent.getJobId()))
+            .collect(Collectors.toList()));
+        deleteForgottenJobDirectories();
+
+        jobRunner = jobQueue.asFlux()
+            .flatMap(this::runJob, maxConcurrentJobs)
+            .subscribe();
+        jobEvictor = Flux.interval(EVICTION_INTERVAL, jobScheduler)
+            .subscribe(tick -> evictFinishedJobs());
+        jobs.values().stream()
+            .filter(jobState -> jobState.toDownloadJob().getStatus() == DownloadJobStatus.QUEUED)
+            .forEach(this::queueJob);
+    }
+
+    /**
+     * Stops running jobs. Jobs that were running are continued on the next start.
+     *
+     * @throws IOException If the job log can not be closed.
+     */
+    @PreDestroy
+    public void stop() throws IOException {
+        jobRunner.dispose();
+        jobEvictor.dispose();
+        jobScheduler.dispose();
+        jobLog.close();
+    }
+
+    /**
+     * Submits a job to download all the photos of a rover over a range of sols or earth dates.
+     *
+     * @param downloadJobRequest {@link DownloadJobRequest} The rover, range, and optionally the cameras to download the
+     *                           photos of.
+     * @return {@link Mono} of the queued {@link DownloadJob}, or {@link Mono#error(Throwable)} with
+     * {@link ResponseStatusException} with {@link HttpStatus#BAD_REQUEST} if the request is not valid.
+     */
+    public Mono<DownloadJob> submitJob(DownloadJobRequest downloadJobRequest) {
+        String jobId = UUID.randomUUID().toString();
+        return Mono.fromCallable(() -> createJobState(jobId, downloadJobRequest))
+            .publishOn(jobScheduler)
+            .map(jobState -> {
+                jobLog.append(new JobEvent(JobEvent.Type.SUBMITTED, jobId, downloadJobRequest, null, null, null, null, null));
+                jobs.put(jobId, jobState);
+                queueJob(jobState);
+                return jobState.toDownloadJob();
+            });
+    }
+
+    /**
+     * Retrieves the progress of a job.
+     *
+     * @param jobId The id of the job.
+     * @return {@link Mono} of {@link DownloadJob}, or {@link Mono#error(Throwable)} with {@link ResponseStatusException}
+     * with {@link HttpStatus#NOT_FOUND} if there is no job with the id.
+     */
+    public Mono<DownloadJob> getJob(String jobId) {
+        return findJob(jobId).map(JobState::toDownloadJob);
+    }
+
+    /**
+     * Streams a ZIP archive of all the photos downloaded by a completed job, read from the job directory one photo at a
+     * time.
+     *
+     * @param jobId The id of the job.
+     * @return {@link Mono} of {@link PhotoArchiveStream}, or {@link Mono#error(Throwable)} with
+     * {@link ResponseStatusException} with {@link HttpStatus#NOT_FOUND} if there is no job with the id, or with
+     * {@link HttpStatus#CONFLICT} if the job hasn't completed.
+     */
+    public Mono<PhotoArchiveStream> streamJobResults(String jobId) {
+        return findJob(jobId).flatMap(jobState -> {
+            if(jobState.toDownloadJob().getStatus() != DownloadJobStatus.COMPLETED) {
+                return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "The job has not completed"));
+            }
+            return Mono.just(new PhotoArchiveStream(jobId + ".zip", writeArchive(directory.resolve(jobId))));
+        });
+    }
+
+    private Mono<JobState> findJob(String jobId) {
+        return Mono.justOrEmpty(jobs.get(jobId))
+            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "The job was not found")));
+    }
+
+    private void queueJob(JobState jobState) {
+        synchronized(jobQueue) {
+            jobQueue.emitNext(jobState, Sinks.EmitFailureHandler.FAIL_FAST);
+        }
+    }
+
+    /**
+     * Validates a request and works out the sols or earth dates it spans.
+     *
+     * @throws ResponseStatusException With {@link HttpStatus#BAD_REQUEST} if the request is not valid.
+     */
+    private JobState createJobState(String jobId, DownloadJobRequest request) {
+        if(request == null || request.getRoverName() == null || !VALID_ROVER_NAME.matcher(request.getRoverName()).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid rover_name");
+        }
+
+        Set<String> cameras = request.getCameras() == null ? Set.of() : Arrays.stream(request.getCameras())
+            .filter(Objects::nonNull)
+            .map(camera -> camera.toUpperCase(Locale.ENGLISH))
+            .collect(Collectors.toUnmodifiableSet());
+
+        long days;
+        LocalDate startDate = null;
+        if(request.getStartSol() != null && request.getEndSol() != null) {
+            if(request.getStartSol() < 0 || request.getStartSol() > request.getEndSol()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "start_sol is after end_sol");
+            }
+            days = (long) request.getEndSol() - request.getStartSol() + 1;
+        } else if(request.getStartDate() != null && request.getEndDate() != null) {
+            Optional<LocalDate> start = DateUtil.getLocalDateFromDate(request.getStartDate());
+            Optional<LocalDate> end = DateUtil.getLocalDateFromDate(request.getEndDate());
+            if(start.isEmpty() || end.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid earth_date format");
+            }
+            if(start.get().isAfter(end.get())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "start_date is after end_date");
+            }
+            startDate = start.get();
+            days = ChronoUnit.DAYS.between(start.get(), end.get()) + 1;
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid request. Only start_sol and end_sol or " +
+                "start_date and end_date are allowed");
+        }
+
+        if(days > maxDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A job can span at most " + maxDays + " sols or earth dates");
+        }
+        return new JobState(jobId, request, cameras, startDate, (int) days);
+    }
+
+    /**
+     * Runs a job from the first sol or earth date that wasn't completed yet. A job that fails, because the photos of a
+     * sol or earth date couldn't be listed or written, stays failed.
+     */
+    private Mono<Void> runJob(JobState jobState) {
+        return Flux.range(0, jobState.getTotalDays())
+            .filter(day -> !jobState.isDayCompleted(day))
+            .doOnSubscribe(subscription -> jobState.start())
+            .concatMap(day -> downloadDay(jobState, day)
+                .publishOn(jobScheduler)
+                .doOnNext(dayCompleted -> {
+                    jobLog.append(dayCompleted);
+                    jobState.completeDay(day, dayCompleted.getPhotos(), dayCompleted.getFailedPhotos());
+                }))
+            .then(Mono.fromRunnable(() -> {
+                long finishedAt = System.currentTimeMillis();
+                jobLog.append(new JobEvent(JobEvent.Type.COMPLETED, jobState.getId(), null, null, null, null, null, finishedAt));
+                jobState.complete(finishedAt);
+            }).subscribeOn(jobScheduler))
+            .onErrorResume(e -> Mono.fromRunnable(() -> {
+                String message = e instanceof ResponseStatusException ? ((ResponseStatusException) e).getReason() : e.getMessage();
+                long finishedAt = System.currentTimeMillis();
+                jobState.fail(message, finishedAt);
+                jobLog.append(new JobEvent(JobEvent.Type.FAILED, jobState.getId(), null, null, null, null, message, finishedAt));
+            }).subscribeOn(jobScheduler))
+            /* A failure to log the failure leaves the job to be run again on the next start */
+            .onErrorResume(e -> Mono.empty())
+            .then(Mono.fromRunnable(this::evictFinishedJobs).subscribeOn(jobScheduler))
+            .then();
+    }
+
+    /**
+     * Downloads the photos of one sol or earth date of a job into its directory.
+     *
+     * @return {@link Mono} of the {@link JobEvent.Type#DAY_COMPLETED} event with the number of photos of the sol or earth
+     * date, and how many of them failed.
+     */
+    private Mono<JobEvent> downloadDay(JobState jobState, int day) {
+        String roverName = jobState.getRequest().getRoverName();
+        Path dayDirectory = directory.resolve(jobState.getId()).resolve(jobState.getDayName(day));
+        return nasaRoverClient.getRoverPhotos(jobState.getDayQuery(day))
+            .flatMapMany(photoList -> Flux.fromArray(photoList.getPhotos() == null ? new Photo[0] : photoList.getPhotos()))
+            .filter(jobState::isRequestedCamera)
+            .flatMap(photo -> downloadToFile(roverName, photo,
+                dayDirectory.resolve(roverName.toLowerCase(Locale.ENGLISH) + "_" + photo.getId() + PHOTO_EXTENSION)),
+                PHOTO_CONCURRENCY)
+            .collect(Collectors.partitioningBy(Boolean::booleanValue, Collectors.counting()))
+            .map(counts -> new JobEvent(JobEvent.Type.DAY_COMPLETED, jobState.getId(), null, day,
+                counts.get(true).intValue(), counts.get(false).intValue(), null, null));
+    }
+
+    /**
+     * Streams the image data of a photo into the target file, so no image is held in memory as a whole.
+     *
+     * @return {@link Mono} of whether the photo is in the target file, false if its image couldn't be retrieved.
+     */
+    private Mono<Boolean> downloadToFile(String roverName, Photo photo, Path target) {
+        return Mono.fromCallable(() -> Files.exists(target))
+            .subscribeOn(jobScheduler)
+            .flatMap(exists -> exists ? Mono.just(true) : writeAtomically(target, photoDownloadService.streamPhoto(roverName, photo)
+                    .flatMapMany(PhotoImageStream::getImageData)
+                    .onErrorMap(ImageUnavailableException::new))
+                .retryWhen(Retry.backoff(PHOTO_RETRIES, Duration.ofSeconds(1))
+                    .filter(ImageUnavailableException.class::isInstance)
+                    .onRetryExhaustedThrow((retrySpec, retrySignal) -> retrySignal.failure()))
+                .thenReturn(true)
+                /* One missing image doesn't fail the job, but a photo that can't be written does */
+                .onErrorResume(ImageUnavailableException.class, e -> Mono.just(false)));
+    }
+
+    /* A photo file only ever exists complete, which is what lets a resumed job skip it */
+    private Mono<Void> writeAtomically(Path target, Flux<DataBuffer> imageData) {
+        return Mono.fromCallable(() -> {
+                Files.createDirectories(target.getParent());
+                return Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            })
+            .subscribeOn(jobScheduler)
+            .flatMap(temp -> DataBufferUtils.write(imageData, temp, StandardOpenOption.WRITE)
+                .then(Mono.fromCallable(() -> {
+                    try {
+                        return Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch(AtomicMoveNotSupportedException e) {
+                        return Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }).subscribeOn(jobScheduler))
+                .doFinally(signalType -> {
+                    if(signalType != SignalType.ON_COMPLETE) {
+                        /* Left behind if this fails too, and never part of the results */
+                        jobScheduler.schedule(() -> deleteQuietly(temp));
+                    }
+                }))
+            .then();
+    }
+
+    private Flux<DataBuffer> writeArchive(Path jobDirectory) {
+        return Flux.defer(() -> {
+            ZipArchiveWriter archiveWriter = new ZipArchiveWriter();
+            return Mono.fromCallable(() -> listPhotos(jobDirectory))
+                .subscribeOn(jobScheduler)
+                .flatMapIterable(paths -> paths)
+                .concatMap(path -> Flux.concat(
+                    Mono.fromCallable(() -> archiveWriter.startEntry(jobDirectory.relativize(path).toString().replace('\\', '/'))),
+                    DataBufferUtils.read(path, DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE)
+                        .subscribeOn(jobScheduler)
+                        .map(archiveWriter::writeEntryData),
+                    Mono.fromCallable(archiveWriter::finishEntry)))
+                .concatWith(Mono.fromCallable(archiveWriter::finish));
+        });
+    }
+
+    /**
+     * Forgets the finished jobs that are past the retention, and the oldest finished jobs beyond the maximum number that
+     * is kept, and deletes their directories.
+     */
+    private void evictFinishedJobs() {
+        long expiredBefore = System.currentTimeMillis() - retention.toMillis();
+        List<JobState> finishedJobs = jobs.values().stream()
+            .filter(jobState -> jobState.getFinishedAt() != null)
+            .sorted(Comparator.comparing(JobState::getFinishedAt).reversed())
+            .collect(Collectors.toList());
+        for(int index = 0; index < finishedJobs.size(); index++) {
+            JobState jobState = finishedJobs.get(index);
+            if(index >= maxFinishedJobs || jobState.getFinishedAt() < expiredBefore) {
+                jobs.remove(jobState.getId());
+                deleteRecursively(directory.resolve(jobState.getId()));
+            }
+        }
+    }
+
+    /* Directories of jobs that were forgotten before their directory could be deleted, e.g. by a crash */
+    private void deleteForgottenJobDirectories() throws IOException {
+        try(Stream<Path> paths = Files.list(directory)) {
+            paths.filter(Files::isDirectory)
+                .filter(path -> !jobs.containsKey(path.getFileName().toString()))
+                .forEach(DownloadJobService::deleteRecursively);
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        if(!Files.exists(path)) {
+            return;
+        }
+        try(Stream<Path> paths = Files.walk(path)) {
+            /* Deepest first, so every directory is empty by the time it is deleted */
+            paths.sorted(Comparator.reverseOrder()).forEach(DownloadJobService::deleteQuietly);
+        } catch(IOException e) {
+            /* Whatever is left is deleted again on the next start */
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch(IOException e) {
+            /* Nothing else to do, see the callers */
+        }
+    }
+
+    private static List<Path> listPhotos(Path jobDirectory) throws IOException {
+        if(!Files.isDirectory(jobDirectory)) {
+            return List.of();
+        }
+        try(Stream<Path> paths = Files.walk(jobDirectory, 2)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(PHOTO_EXTENSION))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * {@link ImageUnavailableException} the image of a photo couldn't be retrieved, as opposed to it couldn't be written.
+     */
+    private static class ImageUnavailableException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ImageUnavailableException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * {@link JobState} the progress of a single job, updated as it runs.
+     */
+    private static class JobState {
+
+        private final String id;
+
+        private final DownloadJobRequest request;
+
+        private final Set<String> cameras;
+
+        /* Null for a sol range */
+        private final LocalDate startDate;
+
+        private final int totalDays;
+
+        private final BitSet completedDays = new BitSet();
+
+        private int downloadedPhotos;
+
+        private int failedPhotos;
+
+        private DownloadJobStatus status = DownloadJobStatus.QUEUED;
+
+        private String message;
+
+        /* Epoch millis, null until the job completed or failed */
+        private Long finishedAt;
+
+        JobState(String id, DownloadJobRequest request, Set<String> cameras, LocalDate startDate, int totalDays) {
+            this.id = id;
+            this.request = request;
+            this.cameras = cameras;
+            this.startDate = startDate;
+            this.totalDays = totalDays;
+        }
+
+        String getId() {
+            return id;
+        }
+
+        DownloadJobRequest getRequest() {
+            return request;
+        }
+
+        int getTotalDays() {
+            return totalDays;
+        }
+
+        /* The name of the directory the photos of a sol or earth date are written to */
+        String getDayName(int day) {
+            return startDate == null ? "sol_" + (request.getStartSol() + day)
+                : DateUtil.convertDateToNasaFormat(startDate.plusDays(day));
+        }
+
+        PhotoQuery getDayQuery(int day) {
+            PhotoQuery dayQuery = startDate == null
+                ? PhotoQuery.forSol(request.getRoverName(), request.getStartSol() + day)
+                : PhotoQuery.forEarthDate(request.getRoverName(), startDate.plusDays(day));
+            return cameras.size() == 1 ? dayQuery.withCamera(cameras.iterator().next()) : dayQuery;
+        }
+
+        boolean isRequestedCamera(Photo photo) {
+            return cameras.isEmpty() || (photo.getCamera() != null
+                && cameras.contains(photo.getCamera().getName().toUpperCase(Locale.ENGLISH)));
+        }
+
+        synchronized boolean isDayCompleted(int day) {
+            return completedDays.get(day);
+        }
+
+        synchronized void start() {
+            status = DownloadJobStatus.RUNNING;
+        }
+
+        synchronized void completeDay(int day, int photos, int failedPhotos) {
+            if(!completedDays.get(day)) {
+                completedDays.set(day);
+                downloadedPhotos += photos;
+                this.failedPhotos += failedPhotos;
+            }
+        }
+
+        synchronized void complete(long finishedAt) {
+            status = DownloadJobStatus.COMPLETED;
+            this.finishedAt = finishedAt;
+        }
+
+        synchronized void fail(String message, long finishedAt) {
+            this.status = DownloadJobStatus.FAILED;
+            this.message = message;
+            this.finishedAt = finishedAt;
+        }
+
+        synchronized Long getFinishedAt() {
+            return finishedAt;
+        }
+
+        synchronized DownloadJob toDownloadJob() {
+            return new DownloadJob(id, request, status, totalDays, completedDays.cardinality(), downloadedPhotos,
+                failedPhotos, message);
+        }
+    }
+}
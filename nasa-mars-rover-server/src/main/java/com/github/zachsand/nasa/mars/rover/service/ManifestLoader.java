@@ -0,0 +1,156 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.index.ManifestIndex;
+import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link ManifestLoader} loads the {@link ManifestIndex} of a rover for the manifest cache of {@link RoverManifestService}.
+ *
+ * The first load retrieves the whole manifest. A refresh first refreshes the {@link RoverCatalog}, compares the fresh
+ * {@link Rover} summary against the cached {@link Manifest}, and keeps the cached manifest if nothing changed. Otherwise
+ * only the sols since the last known sol are retrieved and merged into the cached manifest, as long as their photo
+ * listings are expected to be smaller than the whole manifest. The photos of a sol are only counted, and let go right
+ * after. If the merged manifest doesn't add up to the rover's total photos, older sols changed as well and the whole
+ * manifest is retrieved instead.
+ */
+class ManifestLoader implements AsyncCacheLoader<String, ManifestIndex> {
+
+    /* Past this many new sols the requests per sol are too many, whatever their size */
+    private static final int MAX_DELTA_SOLS = 30;
+
+    /* Measured on the Curiosity fixtures in src/jmh: a sol listing is about 350 bytes per photo, since every photo
+     * carries its camera and rover, while a manifest is about 100 bytes per sol. With about 200 photos on an average
+     * sol, the whole manifest of Curiosity costs about as much as 4 sols retrieved one by one */
+    private static final long LISTING_BYTES_PER_PHOTO = 350;
+
+    private static final long MANIFEST_BYTES_PER_SOL = 100;
+
+    private static final int DELTA_CONCURRENCY = 4;
+
+    private final NasaRoverClient nasaRoverClient;
+
+    private final RoverCatalog roverCatalog;
+
+    /**
+     * {@link ManifestLoader} loads the {@link ManifestIndex} of a rover for the manifest cache.
+     *
+     * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param roverCatalog {@link RoverCatalog} The catalog the {@link Rover} summaries are refreshed through.
+     */
+    ManifestLoader(final NasaRoverClient nasaRoverClient, final RoverCatalog roverCatalog) {
+        this.nasaRoverClient = nasaRoverClient;
+        this.roverCatalog = roverCatalog;
+    }
+
+    @Override
+    public CompletableFuture<ManifestIndex> asyncLoad(String roverName, Executor executor) {
+        return loadManifest(roverName).toFuture();
+    }
+
+    @Override
+    public CompletableFuture<ManifestIndex> asyncReload(String roverName, ManifestIndex oldValue, Executor executor) {
+        return roverCatalog.refresh()
+            .flatMap(snapshot -> Mono.justOrEmpty(snapshot.findRover(roverName)))
+            .flatMap(rover -> syncManifest(roverName, rover, oldValue))
+            .switchIfEmpty(Mono.defer(() -> loadManifest(roverName)))
+            .toFuture();
+    }
+
+    private Mono<ManifestIndex> loadManifest(String roverName) {
+        return nasaRoverClient.getRoverManifest(roverName).map(ManifestIndex::new);
+    }
+
+    /**
+     * Brings the cached manifest up to date with the {@link Rover} summary, retrieving as little as possible.
+     */
+    private Mono<ManifestIndex> syncManifest(String roverName, Rover rover, ManifestIndex manifestIndex) {
+        Manifest manifest = manifestIndex.getManifest();
+        if(rover.getMaxSol() == manifest.getMaxSol() && rover.getTotalPhotos() == manifest.getTotalPhotos()
+            && Objects.equals(rover.getMaxDate(), manifest.getMaxDate())) {
+            return Mono.just(manifestIndex);
+        }
+
+        /* Photos for the last known sol may still have been coming in, so it is retrieved again. The sols are retrieved
+         * past the photo cache, which would otherwise keep the last known sol as it was for days */
+        int firstSol = manifest.getMaxSol();
+        if(rover.getMaxSol() < firstSol || rover.getMaxSol() - firstSol > MAX_DELTA_SOLS
+            || estimateDeltaBytes(rover, manifestIndex) > estimateManifestBytes(rover, manifestIndex)) {
+            return loadManifest(roverName);
+        }
+
+        return Flux.range(firstSol, rover.getMaxSol() - firstSol + 1)
+            .flatMapSequential(sol -> nasaRoverClient.getUncachedRoverPhotos(PhotoQuery.forSol(roverName, sol))
+                .filter(photoList -> photoList.getPhotos() != null && photoList.getPhotos().length > 0)
+                .map(ManifestLoader::toManifestPhoto), DELTA_CONCURRENCY)
+            .collectList()
+            .flatMap(changedSols -> {
+                List<ManifestPhoto> photos = new ArrayList<>();
+                long totalPhotos = 0;
+                for(int sol = 0; sol < firstSol; sol++) {
+                    ManifestPhoto photo = manifestIndex.getBySol(sol);
+                    if(photo != null) {
+                        photos.add(photo);
+                        totalPhotos += photo.getTotalPhotos();
+                    }
+                }
+                for(ManifestPhoto photo : changedSols) {
+                    photos.add(photo);
+                    totalPhotos += photo.getTotalPhotos();
+                }
+
+                if(totalPhotos != rover.getTotalPhotos()) {
+                    return loadManifest(roverName);
+                }
+
+                return Mono.just(new ManifestIndex(new PhotosManifest(new Manifest(manifest.getName(),
+                    manifest.getLandingDate(), manifest.getLaunchDate(), rover.getStatus(), rover.getMaxSol(),
+                    rover.getMaxDate(), rover.getTotalPhotos(), photos.toArray(new ManifestPhoto[0])))));
+            });
+    }
+
+    /**
+     * Estimates the size of the photo listings of the sols since the last known sol. The rover summary says how many
+     * photos were added, and the photos of the last known sol are retrieved again on top of them. If the rover has
+     * fewer photos than the manifest, older sols changed and the estimate is past any manifest.
+     */
+    private static long estimateDeltaBytes(Rover rover, ManifestIndex manifestIndex) {
+        long addedPhotos = rover.getTotalPhotos() - manifestIndex.getManifest().getTotalPhotos();
+        if(addedPhotos < 0) {
+            return Long.MAX_VALUE;
+        }
+        ManifestPhoto lastSol = manifestIndex.getBySol(manifestIndex.getManifest().getMaxSol());
+        long lastSolPhotos = lastSol != null ? lastSol.getTotalPhotos() : 0;
+        return (addedPhotos + lastSolPhotos) * LISTING_BYTES_PER_PHOTO;
+    }
+
+    /**
+     * Estimates the size of the whole manifest with the new sols, as if every sol had photos.
+     */
+    private static long estimateManifestBytes(Rover rover, ManifestIndex manifestIndex) {
+        long sols = manifestIndex.size() + rover.getMaxSol() - manifestIndex.getManifest().getMaxSol();
+        return sols * MANIFEST_BYTES_PER_SOL;
+    }
+
+    /**
+     * Builds the manifest entry of a sol from all the photos taken on it.
+     */
+    private static ManifestPhoto toManifestPhoto(PhotoList photoList) {
+        Photo[] photos = photoList.getPhotos();
+        SortedSet<String> cameras = new TreeSet<>();
+        for(Photo photo : photos) {
+            if(photo.getCamera() != null) {
+                cameras.add(photo.getCamera().getName());
+            }
+        }
+        return new ManifestPhoto(photos[0].getSol(), photos[0].getEarthDate(), photos.length, cameras.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoArchiveStream;
+import com.github.zachsand.nasa.mars.rover.model.PhotoImageStream;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import com.github.zachsand.nasa.mars.rover.util.ZipArchiveWriter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link PhotoArchiveService} service for downloading all the photos of a NASA Mars rover for a date as a single ZIP
+ * archive.
+ */
+@Service
+public class PhotoArchiveService {
+
+    /* Number of images retrieved from the image source at the same time for one archive */
+    private static final int DOWNLOAD_CONCURRENCY = 4;
+
+    /* Last entry of an archive with photos that couldn't be retrieved, one line per photo */
+    static final String MISSING_ENTRY = "MISSING.txt";
+
+    private final NasaRoverClient nasaRoverClient;
+
+    private final PhotoDownloadService photoDownloadService;
+
+    /**
+     * {@link PhotoArchiveService} service for downloading all the photos of a NASA Mars rover for a date as a single ZIP
+     * archive.
+     *
+     * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param photoDownloadService {@link PhotoDownloadService} service for retrieving the image data of each photo.
+     */
+    public PhotoArchiveService(final NasaRoverClient nasaRoverClient, final PhotoDownloadService photoDownloadService) {
+        this.nasaRoverClient = nasaRoverClient;
+        this.photoDownloadService = photoDownloadService;
+    }
+
+    /**
+     * Streams a ZIP archive of all the photos of a rover for an {@code earth_date} or {@code sol}, optionally only those
+     * of a {@code camera}. Images are requested through {@link PhotoDownloadService#streamPhoto(String, Photo)} a few
+     * at a time, and the image data of each one is written to its entry as it arrives, one entry after the other. Only
+     * as much image data is retrieved as the response can keep up with, so no image is held in memory as a whole.
+     *
+     * The archive is already being sent by the time an image fails, so images that can't be retrieved are left out and
+     * images that fail partway end up truncated. Either way they are listed in a final {@value #MISSING_ENTRY} entry.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover to download the photos for. Should have {@code earth_date} or
+     *                   {@code sol}, and may have {@code camera}.
+     * @return {@link Mono} of {@link PhotoArchiveStream}.
+     */
+    public Mono<PhotoArchiveStream> streamPhotoArchive(PhotoQuery photoQuery) {
+        if(!photoQuery.hasDate()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid query parameters. Only sol or earth_date are allowed"));
+        }
+
+        PhotoQuery dayQuery = photoQuery.allPhotosOfDay();
+        String roverName = dayQuery.getRoverName();
+        String archiveName = roverName + "_" + dayQuery.getDateName()
+            + (dayQuery.getCamera() != null ? "_" + dayQuery.getCamera() : "") + ".zip";
+        return nasaRoverClient.getRoverPhotos(dayQuery)
+            .filter(photoList -> photoList.getPhotos() != null && photoList.getPhotos().length > 0)
+            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No photos found to download")))
+            .map(photoList -> new PhotoArchiveStream(archiveName, writeArchive(roverName, photoList.getPhotos())));
+    }
+
+    private Flux<DataBuffer> writeArchive(String roverName, Photo[] photos) {
+        return Flux.defer(() -> {
+            ZipArchiveWriter archiveWriter = new ZipArchiveWriter();
+            /* Only touched from concatMap, which writes the entries one after the other */
+            List<String> missingPhotos = new ArrayList<>();
+            /* A few images are requested ahead, but the image data of each one is only consumed once it is its turn */
+            return Flux.fromArray(photos)
+                .flatMapSequential(photo -> photoDownloadService.streamPhoto(roverName, photo)
+                    .map(Optional::of)
+                    .onErrorReturn(Optional.empty())
+                    .map(photoImageStream -> Tuples.of(roverName + "_" + photo.getId() + ".jpg", photoImageStream)),
+                    DOWNLOAD_CONCURRENCY)
+                .concatMap(entry -> writeEntry(archiveWriter, entry, missingPhotos))
+                .concatWith(Mono.fromCallable(() -> missingPhotos.isEmpty() ? null
+                    : archiveWriter.writeEntry(MISSING_ENTRY, String.join("\n", missingPhotos).concat("\n")
+                        .getBytes(StandardCharsets.UTF_8))))
+                .concatWith(Mono.fromCallable(archiveWriter::finish));
+        });
+    }
+
+    /**
+     * Writes the entry of a photo as its image data arrives, or lists the photo as missing if it couldn't be retrieved.
+     */
+    private static Flux<DataBuffer> writeEntry(ZipArchiveWriter archiveWriter,
+                                               Tuple2<String, Optional<PhotoImageStream>> entry, List<String> missingPhotos) {
+        String entryName = entry.getT1();
+        if(entry.getT2().isEmpty()) {
+            missingPhotos.add(entryName + ": could not be retrieved");
+            return Flux.empty();
+        }
+
+        return Flux.concat(
+            Mono.fromCallable(() -> archiveWriter.startEntry(entryName)),
+            entry.getT2().get().getImageData()
+                .map(archiveWriter::writeEntryData)
+                .onErrorResume(e -> {
+                    missingPhotos.add(entryName + ": incomplete, the image source failed partway");
+                    return Mono.empty();
+                }),
+            Mono.fromCallable(archiveWriter::finishEntry));
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.zachsand.nasa.mars.rover.config.PhotoDerivativeConfiguration;
+import com.github.zachsand.nasa.mars.rover.model.PhotoImage;
+import com.github.zachsand.nasa.mars.rover.query.InvalidQueryException;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import com.github.zachsand.nasa.mars.rover.util.ImageResizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@link PhotoDerivativeService} service for downloading resized copies of photos, like thumbnails, so clients that only
+ * show small images don't have to download the full size photos.
+ *
+ * Derivatives are made from the full size photos of the {@link PhotoDownloadService} on a bounded pool of worker threads
+ * of their own, so resizing never blocks the event loop or the threads used for file IO. Derivatives are cached in
+ * memory, separately from the full size photos and with a size budget of their own.
+ */
+@Service
+public class PhotoDerivativeService {
+
+    /* The JPEG quality, in percent, when only the size is requested */
+    private static final int DEFAULT_QUALITY = 85;
+
+    private final PhotoDownloadService photoDownloadService;
+
+    private final int maxDimension;
+
+    private final Scheduler resizeScheduler;
+
+    private final AsyncCache<DerivativeKey, byte[]> derivativeCache;
+
+    /**
+     * {@link PhotoDerivativeService} service for downloading resized copies of photos.
+     *
+     * @param photoDownloadService {@link PhotoDownloadService} The service for downloading the full size photos.
+     * @param photoDerivativeConfiguration {@link PhotoDerivativeConfiguration} Configuration for the worker threads and
+     *                                                                         the derivative cache.
+     * @param meterRegistry {@link MeterRegistry} Registry the statistics of the derivative cache are reported to.
+     */
+    public PhotoDerivativeService(final PhotoDownloadService photoDownloadService,
+                                  final PhotoDerivativeConfiguration photoDerivativeConfiguration,
+                                  final MeterRegistry meterRegistry) {
+        this.photoDownloadService = photoDownloadService;
+        this.maxDimension = photoDerivativeConfiguration.getMaxDimension();
+        this.resizeScheduler = Schedulers.newBoundedElastic(photoDerivativeConfiguration.getWorkerThreads(),
+            photoDerivativeConfiguration.getMaxQueuedResizes(), "photo-derivatives");
+        this.derivativeCache = Caffeine.newBuilder()
+            .maximumWeight(photoDerivativeConfiguration.getCacheMaxSize().toBytes())
+            .<DerivativeKey, byte[]>weigher((key, imageBytes) -> imageBytes.length)
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, derivativeCache, "photoDerivativeCache");
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    @PreDestroy
+    public void stop() {
+        resizeScheduler.dispose();
+    }
+
+    /**
+     * @param queryParams The HTTP query parameters of a photo download.
+     * @return Whether the photo download is for a derivative rather than the full size photo.
+     */
+    public static boolean isDerivativeRequest(MultiValueMap<String, String> queryParams) {
+        return queryParams.containsKey("width") || queryParams.containsKey("height") || queryParams.containsKey("quality");
+    }
+
+    /**
+     * Retrieves a resized copy of a photo, which fits within the requested {@code width} and {@code height} and keeps
+     * the aspect ratio of the photo. Photos are never made larger. The full size photo is found the same way as for
+     * {@link PhotoDownloadService#downloadPhoto(PhotoQuery, String)}.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover to find a photo for, and the {@code earth_date} of the photo.
+     * @param id The id of the photo to resize.
+     * @param queryParams The HTTP query parameters, with {@code width}, {@code height} and {@code quality} of the
+     *                    derivative.
+     * @return {@link Mono} of {@link PhotoImage} with the resized image, or {@link Mono#error(Throwable)} with
+     * {@link ResponseStatusException} containing the appropriate {@link HttpStatus} and message for the error.
+     */
+    public Mono<PhotoImage> downloadPhotoDerivative(PhotoQuery photoQuery, String id, MultiValueMap<String, String> queryParams) {
+        String invalidParams = "Invalid width, height or quality. Width and height must be between 1 and " + maxDimension
+            + ", quality between 1 and 100";
+        int width;
+        int height;
+        int quality;
+        try {
+            width = parseParam(queryParams, "width", 1, maxDimension, invalidParams);
+            height = parseParam(queryParams, "height", 1, maxDimension, invalidParams);
+            quality = parseParam(queryParams, "quality", 1, 100, invalidParams);
+        } catch(InvalidQueryException e) {
+            return Mono.error(e);
+        }
+
+        return PhotoDownloadService.parsePhotoId(id)
+            .flatMap(photoId -> {
+                DerivativeKey derivativeKey = new DerivativeKey(photoQuery.getRoverName(), photoId, width, height,
+                    quality == 0 ? DEFAULT_QUALITY : quality);
+                String photoName = photoQuery.getRoverName() + "_" + id + "_" + derivativeKey.toSuffix() + ".jpg";
+                return Mono.fromFuture(() -> derivativeCache.get(derivativeKey, (key, executor) ->
+                        createDerivative(photoQuery, id, key).toFuture()))
+                    .map(imageBytes -> new PhotoImage(photoName, imageBytes));
+            });
+    }
+
+    private Mono<byte[]> createDerivative(PhotoQuery photoQuery, String id, DerivativeKey derivativeKey) {
+        return photoDownloadService.downloadPhoto(photoQuery, id)
+            .flatMap(photoImage -> Mono.fromCallable(() -> ImageResizer.resize(photoImage.getImageData(),
+                    derivativeKey.getWidth(), derivativeKey.getHeight(), derivativeKey.getQuality() / 100f))
+                .subscribeOn(resizeScheduler))
+            .onErrorMap(RejectedExecutionException.class, e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Too many photos are being resized, try again later"))
+            .onErrorMap(IOException.class, e -> new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                "Unable to read the photo image"));
+    }
+
+    /**
+     * Parses an optional integer query parameter.
+     *
+     * @return The value, or 0 if the parameter isn't given.
+     * @throws InvalidQueryException With the reason if the value isn't a number between the bounds.
+     */
+    private static int parseParam(MultiValueMap<String, String> queryParams, String name, int min, int max, String reason) {
+        String value = queryParams.getFirst(name);
+        if(value == null) {
+            return 0;
+        }
+        int parsed = PhotoQuery.parseCount(value, 0, reason);
+        if(parsed < min || parsed > max) {
+            throw new InvalidQueryException(reason);
+        }
+        return parsed;
+    }
+
+    /**
+     * {@link DerivativeKey} key of a derivative in the derivative cache. A width or height of 0 is not bounded.
+     */
+    @Value
+    private static class DerivativeKey {
+
+        String roverName;
+
+        int photoId;
+
+        int width;
+
+        int height;
+
+        int quality;
+
+        String toSuffix() {
+            return (width == 0 ? "" : "w" + width) + (height == 0 ? "" : "h" + height) + "q" + quality;
+        }
+    }
+}
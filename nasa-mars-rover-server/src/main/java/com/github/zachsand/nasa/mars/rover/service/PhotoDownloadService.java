@@ -1,23 +1,37 @@
 package com.github.zachsand.nasa.mars.rover.service;
 
+import com.github.zachsand.nasa.mars.rover.cache.PhotoStore;
 import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.config.MetricsConfiguration;
+import com.github.zachsand.nasa.mars.rover.config.RoverTags;
+import com.github.zachsand.nasa.mars.rover.index.PhotoIdIndex;
+import com.github.zachsand.nasa.mars.rover.index.PhotoIndexEntry;
 import com.github.zachsand.nasa.mars.rover.model.Photo;
 import com.github.zachsand.nasa.mars.rover.model.PhotoImage;
-import com.github.zachsand.nasa.mars.rover.util.DateUtil;
+import com.github.zachsand.nasa.mars.rover.model.PhotoImageStream;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 import reactor.netty.http.client.HttpClient;
 
-import java.time.LocalDate;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@link PhotoDownloadService} service for downloading a photo from the NASA Mars Rover API.
@@ -27,16 +41,35 @@ public class PhotoDownloadService {
 
     private final NasaRoverClient nasaRoverClient;
 
+    private final PhotoStore photoStore;
+
+    private final PhotoIdIndex photoIdIndex;
+
     private final WebClient webClient;
 
+    private final MeterRegistry meterRegistry;
+
+    private final RoverTags roverTags;
+
     /**
      * {@link PhotoDownloadService} service for downloading a photo from the NASA Mars Rover API.
      *
      * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param photoStore {@link PhotoStore} The on-disk store for previously downloaded photos.
+     * @param photoIdIndex {@link PhotoIdIndex} Index of the photos that were listed before.
      * @param webClientBuilder {@link WebClient.Builder} Builder for the {@link WebClient} used to query the image source url.
+     * @param meterRegistry {@link MeterRegistry} Registry the sizes of the images retrieved from the image source are
+     *                                           reported to.
+     * @param roverTags {@link RoverTags} The values of the {@code rover} tag of the image sizes.
      */
-    public PhotoDownloadService(final NasaRoverClient nasaRoverClient, WebClient.Builder webClientBuilder) {
+    public PhotoDownloadService(final NasaRoverClient nasaRoverClient, final PhotoStore photoStore,
+                                final PhotoIdIndex photoIdIndex, WebClient.Builder webClientBuilder,
+                                final MeterRegistry meterRegistry, final RoverTags roverTags) {
         this.nasaRoverClient = nasaRoverClient;
+        this.photoStore = photoStore;
+        this.photoIdIndex = photoIdIndex;
+        this.meterRegistry = meterRegistry;
+        this.roverTags = roverTags;
         this.webClient = webClientBuilder.clientConnector(new ReactorClientHttpConnector(
                 /* Some photos redirect 301/307 from HTTP to HTTPS, so follow them */
                 HttpClient.create().followRedirect(true)
@@ -46,49 +79,238 @@ public class PhotoDownloadService {
 
     /**
      * Retrieves photo data by retrieving the {@link Photo} for with the requested {@code id} and {@code earth_date}. Then
-     * uses {@link Photo#getImgSrc()} to retrieve the raw image data to return as a downloadable image.
+     * uses {@link Photo#getImgSrc()} to retrieve the raw image data to return as a downloadable image. Photos that were
+     * downloaded before are served from the {@link PhotoStore} without going back to the image source, and photos that
+     * were listed before are looked up in the {@link PhotoIdIndex}, in which case {@code earth_date} isn't needed.
+     * Built on {@link #streamPhoto(PhotoQuery, String)}, so the image size isn't limited by
+     * {@code spring.codec.max-in-memory-size}, for callers that need the whole image at once, e.g. to decode it.
      *
-     * @param roverName The name of the NASA Mars rover to find a photo for.
+     * @param photoQuery {@link PhotoQuery} The rover to find a photo for, and the {@code earth_date} of the photo.
      * @param id The id of the {@link Photo} to find the raw image data for.
-     * @param queryParams The HTTP query parameters, used to get the photo and {@code earth_date}.
      * @return {@link Mono} of {@link PhotoImage}.
      */
-    public Mono<PhotoImage> downloadPhoto(String roverName, String id, MultiValueMap<String, String> queryParams) {
-        List<String> earthDates = queryParams.get("earth_date");
-        if(CollectionUtils.isEmpty(earthDates)) {
-            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid query parameters. Only earth_date is allowed"));
+    public Mono<PhotoImage> downloadPhoto(PhotoQuery photoQuery, String id) {
+        return streamPhoto(photoQuery, id)
+            .flatMap(photoImageStream -> readImageData(photoImageStream.getImageData())
+                .map(imageBytes -> new PhotoImage(photoImageStream.getPhotoName(), imageBytes)));
+    }
+
+    /**
+     * Retrieves the raw image data of a {@link Photo} that is already known, so no lookup of the image source is needed.
+     * Built on {@link #streamPhoto(String, Photo)}, for callers that need the whole image at once, e.g. to decode it.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param photo The {@link Photo} to retrieve the raw image data for.
+     * @return {@link Mono} of the raw image data.
+     */
+    public Mono<byte[]> downloadPhoto(String roverName, Photo photo) {
+        return streamPhoto(roverName, photo)
+            .flatMap(photoImageStream -> readImageData(photoImageStream.getImageData()));
+    }
+
+    /**
+     * Streams the raw image data of a {@link Photo} that is already known, so no lookup of the image source is needed.
+     * Served from the memory mapped file of the {@link PhotoStore} if it was downloaded before, otherwise relayed from
+     * {@link Photo#getImgSrc()} as it arrives while a copy is written to the {@link PhotoStore}. Meant for the bulk
+     * consumers, e.g. archives and download jobs, which write the image data on without holding it in memory.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param photo The {@link Photo} to stream the raw image data of.
+     * @return {@link Mono} of {@link PhotoImageStream}.
+     */
+    public Mono<PhotoImageStream> streamPhoto(String roverName, Photo photo) {
+        String photoName = roverName + "_" + photo.getId() + ".jpg";
+        return mapStoredPhoto(roverName, photo.getId(), photoName)
+            .switchIfEmpty(Mono.defer(() -> streamFromImageSource(roverName, photo.getId(), photoName, photo.getImgSrc())));
+    }
+
+    /**
+     * Streaming variant of {@link #downloadPhoto(PhotoQuery, String)}. The image data is relayed from the image
+     * source as it arrives instead of being buffered, so only a few buffers per download are held in memory and the
+     * image size isn't limited by {@code spring.codec.max-in-memory-size}. A copy is written to the {@link PhotoStore}
+     * while streaming, and photos that were downloaded before are served from the memory mapped file.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover to find a photo for, and the {@code earth_date} of the photo.
+     * @param id The id of the {@link Photo} to find the raw image data for.
+     * @return {@link Mono} of {@link PhotoImageStream}.
+     */
+    public Mono<PhotoImageStream> streamPhoto(PhotoQuery photoQuery, String id) {
+        String roverName = photoQuery.getRoverName();
+        /* All NASA Mars Rover photos are in the JPEG format */
+        String photoName = roverName + "_" + id + ".jpg";
+        return parsePhotoId(id)
+            .flatMap(photoId -> mapStoredPhoto(roverName, photoId, photoName)
+                .switchIfEmpty(Mono.defer(() -> findImageSource(photoQuery, photoId)
+                    .flatMap(imgSrc -> streamFromImageSource(roverName, photoId, photoName, imgSrc)))));
+    }
+
+    /**
+     * Finds the file of a photo that was downloaded before, so it can be served straight from disk, including only
+     * ranges of it.
+     *
+     * @param roverName The name of the NASA Mars rover the photo belongs to.
+     * @param id The id of the {@link Photo}.
+     * @return {@link Mono} of the {@link Path} of the photo in the {@link PhotoStore}, empty if it isn't stored.
+     */
+    public Mono<Path> findStoredPhoto(String roverName, String id) {
+        return parsePhotoId(id)
+            .flatMap(photoId -> Mono.fromCallable(() -> photoStore.findPhoto(roverName, photoId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(Mono::justOrEmpty));
+    }
+
+    /**
+     * Retrieves only ranges of the image data of a photo from the image source, for photos that aren't stored. The
+     * {@code Range} is forwarded as is, and the response of the image source is relayed as it arrives, whether that is
+     * {@code 206 Partial Content}, the whole image, or {@code 416 Range Not Satisfiable}. Partial image data is never
+     * written to the {@link PhotoStore}.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover to find a photo for, and the {@code earth_date} of the photo.
+     * @param id The id of the {@link Photo} to find the raw image data for.
+     * @param range The {@code Range} header of the request.
+     * @return {@link Mono} of {@link ResponseEntity} with the status, headers and body of the image source.
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> relayPhotoRange(PhotoQuery photoQuery, String id, String range) {
+        return parsePhotoId(id)
+            .flatMap(photoId -> findImageSource(photoQuery, photoId))
+            .flatMap(imgSrc -> imageRequest(photoQuery.getRoverName(), imgSrc)
+                .header(HttpHeaders.RANGE, range)
+                .retrieve()
+                .onStatus(status -> status.isError() && status != HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE,
+                    clientResponse -> Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                        "Error retrieving the photo from the image source")))
+                .toEntityFlux(DataBuffer.class));
+    }
+
+    /**
+     * Parses the photo id of a photo download.
+     *
+     * @return {@link Mono} of the photo id, or {@link Mono#error(Throwable)} with {@link ResponseStatusException}
+     * containing the appropriate {@link HttpStatus} and message for the error.
+     */
+    static Mono<Integer> parsePhotoId(String id) {
+        try {
+            return Mono.just(Integer.parseInt(id));
+        } catch(NumberFormatException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid photo id format"));
         }
+    }
 
-        Optional<LocalDate> requestedDateInstance = DateUtil.getLocalDateFromDate(earthDates.get(0));
-        if(requestedDateInstance.isEmpty()) {
-            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid earth_date format"));
+    /**
+     * Finds the image source url of a photo. Photos that were listed before are found in the {@link PhotoIdIndex}, any
+     * other photo falls back to {@link #findPhoto(PhotoQuery, int)}, which needs {@code earth_date}.
+     */
+    private Mono<String> findImageSource(PhotoQuery photoQuery, int photoId) {
+        PhotoIndexEntry photoIndexEntry = photoIdIndex.get(photoId);
+        if(photoIndexEntry != null && photoQuery.getRoverName().equalsIgnoreCase(photoIndexEntry.getRoverName())) {
+            return Mono.just(photoIndexEntry.getImgSrc());
         }
 
-        try {
-            /*
-             * Since the NASA Mars Rover API doesn't have an endpoint to find a photo by ID, first query for all the photos
-             * with the given query parameters.
-             * Then find the photo, if it exists, with the given id.
-             * Then make a GET request to that image source to get the raw bytes of the image to store in the PhotoImage.
-             */
-            return nasaRoverClient.getRoverPhotos(roverName, queryParams)
-                .flatMap(photoList ->
-                    webClient.get().uri(
-                        Arrays.stream(photoList.getPhotos())
-                            .filter(photo -> photo.getId() == Integer.parseInt(id))
-                            .findFirst()
-                            .orElseThrow()
-                            .getImgSrc()
-                    )
-                    .retrieve()
-                    .bodyToMono(byte[].class)
-                    /* All NASA Mars Rover photos are in the JPEG format */
-                    .flatMap(imageBytes -> Mono.just(new PhotoImage(roverName + "_" + id + ".jpg", imageBytes)))
-                );
-        }catch(Exception e) {
-            /* Lots of things could go wrong, so generally just catch any exception and give the general 404 */
-            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to find photo to download " +
-                    System.lineSeparator() + e.getMessage()));
+        if(photoQuery.getEpochDay() == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid query parameters. Only earth_date is allowed"));
         }
+
+        return findPhoto(photoQuery, photoId).map(Photo::getImgSrc);
+    }
+
+    /**
+     * Since the NASA Mars Rover API doesn't have an endpoint to find a photo by ID, first query for all the photos
+     * of the query.
+     * Then find the photo, if it exists, with the given id.
+     */
+    private Mono<Photo> findPhoto(PhotoQuery photoQuery, int photoId) {
+        return nasaRoverClient.getRoverPhotos(photoQuery)
+            .flatMap(photoList -> Mono.justOrEmpty(findPhotoById(photoList.getPhotos(), photoId)))
+            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unable to find photo to download")));
+    }
+
+    /**
+     * Finds the photo with the id in the photos of a NASA Mars Rover API response.
+     *
+     * @return {@link Optional} of the {@link Photo}, empty if none of the photos has the id.
+     */
+    static Optional<Photo> findPhotoById(Photo[] photos, int photoId) {
+        return Arrays.stream(photos)
+            .filter(photo -> photo.getId() == photoId)
+            .findFirst();
+    }
+
+    /**
+     * Memory maps a photo that was downloaded before.
+     *
+     * @return {@link Mono} of {@link PhotoImageStream} of the whole mapped file, empty if the photo isn't stored.
+     */
+    private Mono<PhotoImageStream> mapStoredPhoto(String roverName, int photoId, String photoName) {
+        return Mono.fromCallable(() -> photoStore.mapPhoto(roverName, photoId))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(Mono::justOrEmpty)
+            .map(buffer -> new PhotoImageStream(photoName, buffer.remaining(),
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(buffer))));
+    }
+
+    /**
+     * Joins the streamed image data into a single array. Unlike decoding the body, this isn't limited by
+     * {@code spring.codec.max-in-memory-size}.
+     */
+    private static Mono<byte[]> readImageData(Flux<DataBuffer> imageData) {
+        return DataBufferUtils.join(imageData)
+            .map(dataBuffer -> {
+                byte[] imageBytes = new byte[dataBuffer.readableByteCount()];
+                dataBuffer.read(imageBytes);
+                DataBufferUtils.release(dataBuffer);
+                return imageBytes;
+            });
+    }
+
+    /**
+     * Relays the image data from the image source with backpressure, while writing it to a {@link PhotoStore.PhotoWriter}
+     * as it passes through. The photo is only committed to the store if the whole image was received.
+     */
+    private Mono<PhotoImageStream> streamFromImageSource(String roverName, int photoId, String photoName, String imgSrc) {
+        return imageRequest(roverName, imgSrc)
+            .retrieve()
+            .onStatus(HttpStatus::isError, clientResponse -> Mono.error(
+                new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Error retrieving the photo from the image source")))
+            .toEntityFlux(DataBuffer.class)
+            .map(entity -> {
+                long contentLength = entity.getHeaders().getContentLength();
+                AtomicLong receivedBytes = new AtomicLong();
+                Flux<DataBuffer> body = entity.getBody()
+                    .doOnNext(dataBuffer -> receivedBytes.addAndGet(dataBuffer.readableByteCount()))
+                    .doOnComplete(() -> downloadSize(roverName).record(receivedBytes.get()));
+                Flux<DataBuffer> imageData = Mono.fromCallable(() -> photoStore.openPhotoWriter(roverName, photoId))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapMany(photoWriter -> photoWriter
+                        .map(writer -> DataBufferUtils.write(body, writer.getChannel())
+                            .doFinally(signalType -> Schedulers.boundedElastic().schedule(() -> {
+                                if(signalType == SignalType.ON_COMPLETE) {
+                                    writer.commit(contentLength);
+                                } else {
+                                    writer.abort();
+                                }
+                            })))
+                        .orElse(body));
+                return new PhotoImageStream(photoName, contentLength, imageData);
+            });
+    }
+
+    /**
+     * Request to the image source, tagged as such in the metrics of the {@link WebClient}.
+     */
+    private WebClient.RequestHeadersSpec<?> imageRequest(String roverName, String imgSrc) {
+        return webClient.get().uri(imgSrc)
+            .attribute(MetricsConfiguration.ENDPOINT_ATTRIBUTE, "image")
+            .attribute(MetricsConfiguration.ROVER_ATTRIBUTE, roverName);
+    }
+
+    /**
+     * Sizes of the whole images retrieved from the image source, partial ones aren't included.
+     */
+    private DistributionSummary downloadSize(String roverName) {
+        return DistributionSummary.builder("rover.photo.download.size")
+            .description("Size of the photos retrieved from the image source")
+            .baseUnit("bytes")
+            .tag("rover", roverTags.roverTag(roverName))
+            .register(meterRegistry);
     }
 }
@@ -0,0 +1,265 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.config.PhotoDerivativeConfiguration;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoMosaic;
+import com.github.zachsand.nasa.mars.rover.query.InvalidQueryException;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import com.github.zachsand.nasa.mars.rover.util.ImageResizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PhotoMosaicService} service for contact sheets of all the photos of a NASA Mars rover for a date: a single JPEG
+ * with a thumbnail of every photo, so browsing a date takes one request instead of one per photo.
+ *
+ * Images are retrieved through {@link PhotoDownloadService} a few at a time, and decoded and scaled down to thumbnails
+ * in parallel on a {@link ForkJoinPool} of their own, so only the small thumbnails are kept until the mosaic is drawn.
+ * Mosaics are cached in memory with a size budget of their own, and mosaics with photos missing only briefly, so the
+ * photos that failed are tried again soon.
+ */
+@Service
+public class PhotoMosaicService {
+
+    /* Number of images retrieved from the image source at the same time for one mosaic */
+    private static final int DOWNLOAD_CONCURRENCY = 4;
+
+    private static final int DEFAULT_TILE_SIZE = 128;
+
+    private static final int MIN_TILE_SIZE = 16;
+
+    private static final int MAX_TILE_SIZE = 512;
+
+    /* Maximum width and height of a mosaic, photos that don't fit are left out */
+    private static final int MAX_MOSAIC_SIZE = 4096;
+
+    private static final float MOSAIC_QUALITY = 0.8f;
+
+    /* New photos of recent dates keep arriving, so mosaics are made again now and then */
+    private static final long MOSAIC_EXPIRE_HOURS = 1;
+
+    /* Long enough to spare the image source from a burst of requests for the same mosaic while it is failing */
+    private static final long PARTIAL_MOSAIC_EXPIRE_MINUTES = 1;
+
+    private final NasaRoverClient nasaRoverClient;
+
+    private final PhotoDownloadService photoDownloadService;
+
+    private final ForkJoinPool tilePool;
+
+    private final AsyncCache<MosaicKey, MosaicImage> mosaicCache;
+
+    /**
+     * {@link PhotoMosaicService} service for contact sheets of all the photos of a NASA Mars rover for a date.
+     *
+     * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param photoDownloadService {@link PhotoDownloadService} service for retrieving the image data of each photo.
+     * @param photoDerivativeConfiguration {@link PhotoDerivativeConfiguration} Configuration for the tile pool and the
+     *                                                                         mosaic cache.
+     * @param meterRegistry {@link MeterRegistry} Registry the statistics of the mosaic cache are reported to.
+     */
+    public PhotoMosaicService(final NasaRoverClient nasaRoverClient, final PhotoDownloadService photoDownloadService,
+                              final PhotoDerivativeConfiguration photoDerivativeConfiguration,
+                              final MeterRegistry meterRegistry) {
+        this.nasaRoverClient = nasaRoverClient;
+        this.photoDownloadService = photoDownloadService;
+        this.tilePool = new ForkJoinPool(photoDerivativeConfiguration.getMosaicParallelism() > 0
+            ? photoDerivativeConfiguration.getMosaicParallelism()
+            : Runtime.getRuntime().availableProcessors());
+        this.mosaicCache = Caffeine.newBuilder()
+            .maximumWeight(photoDerivativeConfiguration.getMosaicCacheMaxSize().toBytes())
+            .<MosaicKey, MosaicImage>weigher((key, mosaicImage) -> mosaicImage.getImageData().length)
+            .expireAfter(new MosaicExpiry())
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, mosaicCache, "photoMosaicCache");
+    }
+
+    /**
+     * Stops the tile pool.
+     */
+    @PreDestroy
+    public void stop() {
+        tilePool.shutdownNow();
+    }
+
+    /**
+     * Retrieves a mosaic of all the photos of a rover for an {@code earth_date} or {@code sol}, optionally only those of
+     * a {@code camera}. Every photo is scaled to fit a square tile of {@code tile} pixels, and the tiles are laid out in
+     * rows in the order of the photos. Photos that can't be retrieved or decoded are left out, and counted in
+     * {@link PhotoMosaic#getMissingPhotos()}.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover to make the mosaic for. Should have {@code earth_date} or
+     *                   {@code sol}, and may have {@code camera}.
+     * @param queryParams The HTTP query parameters, which may have {@code tile}.
+     * @return {@link Mono} of {@link PhotoMosaic}, or {@link Mono#error(Throwable)} with
+     * {@link ResponseStatusException} containing the appropriate {@link HttpStatus} and message for the error.
+     */
+    public Mono<PhotoMosaic> getPhotoMosaic(PhotoQuery photoQuery, MultiValueMap<String, String> queryParams) {
+        if(!photoQuery.hasDate()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid query parameters. Only sol or earth_date are allowed"));
+        }
+
+        String invalidTile = "Invalid tile. Must be between " + MIN_TILE_SIZE + " and " + MAX_TILE_SIZE;
+        int tileSize;
+        try {
+            tileSize = PhotoQuery.parseCount(queryParams.getFirst("tile"), DEFAULT_TILE_SIZE, invalidTile);
+        } catch(InvalidQueryException e) {
+            return Mono.error(e);
+        }
+        if(tileSize < MIN_TILE_SIZE || tileSize > MAX_TILE_SIZE) {
+            return Mono.error(new InvalidQueryException(invalidTile));
+        }
+
+        MosaicKey mosaicKey = new MosaicKey(photoQuery.allPhotosOfDay(), tileSize);
+        String mosaicName = photoQuery.getRoverName() + "_" + photoQuery.allPhotosOfDay().getDateName()
+            + (photoQuery.getCamera() != null ? "_" + photoQuery.getCamera() : "") + "_mosaic.jpg";
+        return Mono.fromFuture(() -> mosaicCache.get(mosaicKey, (key, executor) -> createMosaic(key).toFuture()))
+            .map(mosaicImage -> new PhotoMosaic(mosaicName, mosaicImage.getImageData(), mosaicImage.getMissingPhotos()));
+    }
+
+    private Mono<MosaicImage> createMosaic(MosaicKey mosaicKey) {
+        String roverName = mosaicKey.getPhotoQuery().getRoverName();
+        int tileSize = mosaicKey.getTileSize();
+        return nasaRoverClient.getRoverPhotos(mosaicKey.getPhotoQuery())
+            .filter(photoList -> photoList.getPhotos() != null && photoList.getPhotos().length > 0)
+            .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No photos found for the mosaic")))
+            .flatMap(photoList -> {
+                Photo[] photos = photoList.getPhotos();
+                int maxTiles = MAX_MOSAIC_SIZE / tileSize;
+                int columns = Math.min(maxTiles, (int) Math.ceil(Math.sqrt(photos.length)));
+                int rows = Math.min(maxTiles, (photos.length + columns - 1) / columns);
+                /* flatMapSequential keeps the tiles in the order of the photos, while still retrieving and scaling several at once */
+                return Flux.fromArray(photos)
+                    .take((long) columns * rows)
+                    /* A photo that can't be retrieved or decoded is left out, and counted as missing */
+                    .flatMapSequential(photo -> photoDownloadService.downloadPhoto(roverName, photo)
+                        .map(Optional::of)
+                        .onErrorReturn(Optional.empty()), DOWNLOAD_CONCURRENCY)
+                    .flatMapSequential(imageBytes -> Mono.justOrEmpty(imageBytes)
+                        .flatMap(bytes -> onTilePool(() -> createTile(bytes, tileSize)))
+                        .map(Optional::of)
+                        .onErrorReturn(Optional.empty())
+                        .defaultIfEmpty(Optional.empty()), tilePool.getParallelism())
+                    .collectList()
+                    .flatMap(tiles -> {
+                        List<BufferedImage> presentTiles = tiles.stream()
+                            .flatMap(Optional::stream)
+                            .collect(Collectors.toList());
+                        if(presentTiles.isEmpty()) {
+                            return Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                                "Unable to retrieve any photos for the mosaic"));
+                        }
+                        return onTilePool(() -> new MosaicImage(drawMosaic(presentTiles, columns, tileSize),
+                            tiles.size() - presentTiles.size()));
+                    });
+            });
+    }
+
+    private <T> Mono<T> onTilePool(Supplier<T> task) {
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(task, tilePool));
+    }
+
+    private static BufferedImage createTile(byte[] imageBytes, int tileSize) {
+        try {
+            return ImageResizer.scaleToFit(ImageResizer.read(imageBytes), tileSize, tileSize);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Draws the tiles on a black background, each one centered in its square.
+     */
+    private static byte[] drawMosaic(List<BufferedImage> tiles, int columns, int tileSize) {
+        int rows = (tiles.size() + columns - 1) / columns;
+        BufferedImage mosaic = new BufferedImage(Math.min(columns, tiles.size()) * tileSize, rows * tileSize,
+            BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = mosaic.createGraphics();
+        try {
+            for(int i = 0; i < tiles.size(); i++) {
+                BufferedImage tile = tiles.get(i);
+                int x = (i % columns) * tileSize + (tileSize - tile.getWidth()) / 2;
+                int y = (i / columns) * tileSize + (tileSize - tile.getHeight()) / 2;
+                graphics.drawImage(tile, x, y, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        try {
+            return ImageResizer.writeJpeg(mosaic, MOSAIC_QUALITY);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@link MosaicImage} the JPEG image data of a mosaic, and how many of its photos are missing.
+     */
+    @Value
+    private static class MosaicImage {
+
+        byte[] imageData;
+
+        int missingPhotos;
+    }
+
+    /**
+     * {@link MosaicExpiry} keeps a mosaic of every photo for {@link #MOSAIC_EXPIRE_HOURS}, and a mosaic with photos
+     * missing for {@link #PARTIAL_MOSAIC_EXPIRE_MINUTES}.
+     */
+    private static class MosaicExpiry implements Expiry<MosaicKey, MosaicImage> {
+
+        @Override
+        public long expireAfterCreate(MosaicKey key, MosaicImage mosaicImage, long currentTime) {
+            return mosaicImage.getMissingPhotos() > 0 ? TimeUnit.MINUTES.toNanos(PARTIAL_MOSAIC_EXPIRE_MINUTES)
+                : TimeUnit.HOURS.toNanos(MOSAIC_EXPIRE_HOURS);
+        }
+
+        @Override
+        public long expireAfterUpdate(MosaicKey key, MosaicImage mosaicImage, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, mosaicImage, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(MosaicKey key, MosaicImage mosaicImage, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * {@link MosaicKey} key of a mosaic in the mosaic cache, the query for all the photos of the date and the tile size.
+     */
+    @Value
+    private static class MosaicKey {
+
+        PhotoQuery photoQuery;
+
+        int tileSize;
+    }
+}
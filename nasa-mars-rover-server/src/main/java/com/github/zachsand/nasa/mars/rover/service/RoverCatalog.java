@@ -0,0 +1,214 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.Rover;
+import com.github.zachsand.nasa.mars.rover.model.RoverList;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link RoverCatalog} in-memory catalog of the NASA Mars rovers, so the list of rovers isn't retrieved from the NASA
+ * Mars Rover API for every request that needs it.
+ *
+ * The catalog is an immutable {@link Snapshot} that is replaced as a whole when the rovers are refreshed in the
+ * background, every hour. Readers never take a lock, and never wait on the NASA Mars Rover API once the first snapshot
+ * is loaded. A refresh that fails keeps the previous snapshot. The {@code /api/rovers} response body is serialized once
+ * per snapshot, rather than once per request.
+ */
+@Service
+public class RoverCatalog {
+
+    private static final int REFRESH_HOURS = 1;
+
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /* Concurrent refreshes share a single request to the NASA Mars Rover API */
+    private final Mono<Snapshot> refresh;
+
+    private Disposable refresher;
+
+    /**
+     * {@link RoverCatalog} in-memory catalog of the NASA Mars rovers.
+     *
+     * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param objectMapper {@link ObjectMapper} The mapper the {@code /api/rovers} response body is written with.
+     */
+    public RoverCatalog(final NasaRoverClient nasaRoverClient, final ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.refresh = Mono.defer(nasaRoverClient::getRovers)
+            .map(this::swapSnapshot)
+            .cache(
+                swapped -> Duration.ZERO,
+                error -> Duration.ZERO,
+                () -> Duration.ZERO);
+    }
+
+    /**
+     * Loads the first snapshot, and refreshes it every hour from then on.
+     */
+    @PostConstruct
+    public void start() {
+        refresher = Flux.interval(Duration.ZERO, Duration.ofHours(REFRESH_HOURS))
+            .onBackpressureDrop()
+            .concatMap(tick -> refresh().onErrorResume(error -> Mono.empty() /* The previous snapshot is kept */))
+            .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if(refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * @return The current {@link Snapshot}, or null if none has been loaded yet. Never waits.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * @return {@link Mono} of the current {@link Snapshot}, which only waits on the NASA Mars Rover API if none has been
+     * loaded yet.
+     */
+    public Mono<Snapshot> currentSnapshot() {
+        Snapshot current = snapshot.get();
+        return current != null ? Mono.just(current) : refresh();
+    }
+
+    /**
+     * Retrieves the rovers from the NASA Mars Rover API and replaces the current {@link Snapshot} with them.
+     *
+     * @return {@link Mono} of the new {@link Snapshot}, or {@link Mono#error(Throwable)} if the rovers couldn't be
+     * retrieved, in which case the current snapshot is kept.
+     */
+    public Mono<Snapshot> refresh() {
+        return refresh;
+    }
+
+    /**
+     * Replaces the current {@link Snapshot}, unless the rovers serialize to the same response body, in which case the
+     * current snapshot is kept along with its {@code ETag} and {@code Last-Modified}.
+     */
+    private Snapshot swapSnapshot(RoverList roverList) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(roverList);
+        } catch(JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return snapshot.updateAndGet(current -> current != null && Arrays.equals(current.json, json)
+            ? current
+            : new Snapshot(roverList.getRovers(), json));
+    }
+
+    /**
+     * {@link Snapshot} the rovers at one point in time, with their cameras by name and the serialized
+     * {@code /api/rovers} response body. The {@link Rover} of a rover is also the summary its cached manifest is brought
+     * up to date against. Nothing of a snapshot can be changed through it, since every request and every manifest refresh
+     * shares it.
+     */
+    public static class Snapshot {
+
+        /* By lower case name */
+        private final Map<String, Rover> rovers;
+
+        /* By lower case rover name, then upper case camera name */
+        private final Map<String, Map<String, Camera>> cameras;
+
+        private final byte[] json;
+
+        private final String eTag;
+
+        private final Instant lastModified;
+
+        private Snapshot(Rover[] allRovers, byte[] json) {
+            Map<String, Rover> rovers = new HashMap<>();
+            Map<String, Map<String, Camera>> cameras = new HashMap<>();
+            for(Rover rover : allRovers) {
+                String roverName = rover.getName().toLowerCase(Locale.ENGLISH);
+                Map<String, Camera> roverCameras = new HashMap<>();
+                for(Camera camera : rover.getCameras() == null ? new Camera[0] : rover.getCameras()) {
+                    if(camera.getName() != null) {
+                        roverCameras.put(camera.getName().toUpperCase(Locale.ENGLISH), camera);
+                    }
+                }
+                rovers.put(roverName, rover);
+                cameras.put(roverName, Map.copyOf(roverCameras));
+            }
+
+            this.rovers = Map.copyOf(rovers);
+            this.cameras = Map.copyOf(cameras);
+            this.json = json;
+            this.eTag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            /* HTTP dates only have seconds, and are compared as such */
+            this.lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        }
+
+        /**
+         * @return The lower case names of the rovers.
+         */
+        public Set<String> getRoverNames() {
+            return rovers.keySet();
+        }
+
+        /**
+         * @return A read-only {@link ByteBuffer} of the serialized {@code /api/rovers} response body, of its own for every
+         * call, so its position can't be moved for another reader.
+         */
+        public ByteBuffer getJson() {
+            return ByteBuffer.wrap(json).asReadOnlyBuffer();
+        }
+
+        /**
+         * @return The strong {@code ETag} of the serialized {@code /api/rovers} response body.
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * @return When the rovers last changed, in whole seconds.
+         */
+        public Instant getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @param roverName The name of the NASA Mars rover, in any case.
+         * @return {@link Optional} of the {@link Rover}, empty if there is no rover with the name.
+         */
+        public Optional<Rover> findRover(String roverName) {
+            return Optional.ofNullable(rovers.get(roverName.toLowerCase(Locale.ENGLISH)));
+        }
+
+        /**
+         * @param roverName The name of the NASA Mars rover, in any case.
+         * @param cameraName The abbreviated name of the camera, in any case.
+         * @return {@link Optional} of the {@link Camera}, empty if the rover has no camera with the name.
+         */
+        public Optional<Camera> findCamera(String roverName, String cameraName) {
+            return Optional.ofNullable(cameras.getOrDefault(roverName.toLowerCase(Locale.ENGLISH), Map.of())
+                .get(cameraName.toUpperCase(Locale.ENGLISH)));
+        }
+    }
+}
@@ -1,25 +1,34 @@
 package com.github.zachsand.nasa.mars.rover.service;
 
-import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.index.ManifestIndex;
+import com.github.zachsand.nasa.mars.rover.model.CameraSols;
 import com.github.zachsand.nasa.mars.rover.model.ManifestPhoto;
-import com.github.zachsand.nasa.mars.rover.model.PhotosManifest;
-import com.github.zachsand.nasa.mars.rover.model.Rover;
+import com.github.zachsand.nasa.mars.rover.model.ManifestRange;
+import com.github.zachsand.nasa.mars.rover.model.MarsTime;
+import com.github.zachsand.nasa.mars.rover.model.Versioned;
+import com.github.zachsand.nasa.mars.rover.query.InvalidQueryException;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
 import com.github.zachsand.nasa.mars.rover.util.DateUtil;
+import com.github.zachsand.nasa.mars.rover.util.MarsClock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.PostConstruct;
 import java.time.LocalDate;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * {@link RoverManifestService} service for retrieving NASA Mars rover manifest information.
@@ -27,114 +36,259 @@ import java.util.concurrent.TimeUnit;
 @Service
 public class RoverManifestService {
 
-    private final NasaRoverClient nasaRoverClient;
+    private final RoverCatalog roverCatalog;
 
-    private final Cache<String, PhotosManifest> photosManifestCache;
+    private final AsyncLoadingCache<String, ManifestIndex> photosManifestCache;
 
-    private static final int CACHE_EXPIRE_HOURS = 24;
+    private static final int CACHE_REFRESH_HOURS = 12;
+
+    private static final int DEFAULT_PER_PAGE = 25;
+
+    private static final int MAX_PER_PAGE = 100;
 
     /**
      * {@link RoverManifestService} service for retrieving NASA Mars rover manifest information.
      * @param nasaRoverClient {@link NasaRoverClient} The client for making requests to the NASA Mars Rover API.
+     * @param roverCatalog {@link RoverCatalog} The catalog of the rovers there are manifests for.
+     * @param meterRegistry {@link MeterRegistry} Registry the statistics of the manifest cache are reported to.
      */
-    public RoverManifestService(final NasaRoverClient nasaRoverClient) {
-        this.nasaRoverClient = nasaRoverClient;
+    @Autowired
+    public RoverManifestService(final NasaRoverClient nasaRoverClient, final RoverCatalog roverCatalog,
+                                final MeterRegistry meterRegistry) {
+        this(nasaRoverClient, roverCatalog, meterRegistry, Ticker.systemTicker());
+    }
+
+    /**
+     * {@link RoverManifestService} service for retrieving NASA Mars rover manifest information, with the manifest cache
+     * going by the time of the given {@link Ticker}.
+     */
+    RoverManifestService(final NasaRoverClient nasaRoverClient, final RoverCatalog roverCatalog,
+                         final MeterRegistry meterRegistry, final Ticker ticker) {
+        this.roverCatalog = roverCatalog;
 
         /*
-         * Initialize cache for manifest to expire after 24 hours, since new manifest information may be available the
-         * next day.
+         * Initialize cache for manifest to refresh in the background 12 hours after it was loaded, since new manifest
+         * information may be available the next day. Entries never expire, so readers always get the last manifest that
+         * was loaded while the refresh is in flight, and if the refresh fails. Caffeine only runs one refresh per rover
+         * at a time. See ManifestLoader for how a refresh avoids retrieving the whole manifest again.
          */
         photosManifestCache = Caffeine.newBuilder()
                 .maximumSize(10)
-                .expireAfterWrite(CACHE_EXPIRE_HOURS, TimeUnit.HOURS)
-                .build();
+                .refreshAfterWrite(CACHE_REFRESH_HOURS, TimeUnit.HOURS)
+                .ticker(ticker)
+                .recordStats()
+                .buildAsync(new ManifestLoader(nasaRoverClient, roverCatalog));
+        CaffeineCacheMetrics.monitor(meterRegistry, photosManifestCache, "photosManifestCache");
     }
 
+    /**
+     * Loads the manifest of every rover, so the first manifest requests don't have to wait on the NASA Mars Rover API.
+     */
     @PostConstruct
     public void fillCache() {
-        nasaRoverClient.getRovers()
-            .subscribe(roverList -> Arrays.stream(roverList.getRovers())
-                .map(Rover::getName)
-                .map(nasaRoverClient::getRoverManifest)
-                .forEach(photosManifestMono -> photosManifestMono.subscribe(
-                    photosManifest -> photosManifestCache.put(photosManifest.getPhotoManifest().getName().toLowerCase(), photosManifest))));
+        roverCatalog.currentSnapshot().subscribe(
+            snapshot -> snapshot.getRoverNames().forEach(photosManifestCache::get),
+            error -> { /* Loaded on demand instead */ });
     }
 
     /**
-     * Retrieves a NASA Rover photo manifest for a specific date ({@code sol} or {@code earth_date} are valid date types).
+     * Retrieves the {@link ManifestIndex} of a rover, loading it if this is the first request for the rover.
+     *
+     * @param roverName The name of the NASA Mars rover.
+     * @return {@link Mono} of {@link ManifestIndex}, or {@link Mono#error(Throwable)} with {@link ResponseStatusException}
+     * with {@link HttpStatus#NOT_FOUND} if there is no rover with the name.
+     */
+    private Mono<ManifestIndex> getManifestIndex(String roverName) {
+        String name = roverName.toLowerCase(Locale.ENGLISH);
+        return roverCatalog.currentSnapshot().flatMap(snapshot -> snapshot.getRoverNames().contains(name)
+            ? Mono.fromFuture(photosManifestCache.get(name))
+            : Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "The rover name was not found")));
+    }
+
+    /**
+     * Finds the {@link MarsClock} of a rover whose manifest is already cached, without waiting for the manifest to load.
      *
-     * @param roverName The name of the NASA Mars rover to get the photo manifest for.
-     * @param requestParameters The HTTP query parameters. Should have valid ({@code sol} or {@code earth_date}.
-     * @return {@link Mono} of {@link ManifestPhoto}.
+     * @param roverName The name of the NASA Mars rover.
+     * @return {@link Optional} of {@link MarsClock}, empty if the manifest isn't loaded yet or doesn't agree with the clock.
      */
-    public Mono<ManifestPhoto> getRoverPhotoManifestByDate(String roverName, MultiValueMap<String, String> requestParameters) {
-        List<String> sol = requestParameters.get("sol");
-        List<String> earthDate = requestParameters.get("earth_date");
+    public Optional<MarsClock> findMarsClock(String roverName) {
+        CompletableFuture<ManifestIndex> manifestIndex = photosManifestCache.getIfPresent(roverName.toLowerCase(Locale.ENGLISH));
+        if(manifestIndex == null || !manifestIndex.isDone() || manifestIndex.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return manifestIndex.join().getMarsClock();
+    }
 
-        if(CollectionUtils.isEmpty(sol) && CollectionUtils.isEmpty(earthDate)) {
+    /**
+     * Translates a {@code sol} to its earth date, or an {@code earth_date} to the sol under way on it, with the
+     * {@link MarsClock} of the rover. Works for sols and earth dates without photos too.
+     *
+     * @param photoQuery {@link PhotoQuery} The rover to translate for. Should have {@code sol} or {@code earth_date}.
+     * @return {@link Mono} of {@link Versioned} {@link MarsTime} with the sol and its earth date, or
+     * {@link Mono#error(Throwable)} with {@link ResponseStatusException} containing the appropriate {@link HttpStatus}
+     * and message for the error.
+     */
+    public Mono<Versioned<MarsTime>> getMarsTime(PhotoQuery photoQuery) {
+        if(!photoQuery.hasDate()) {
             return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid query parameters. Only sol or earth_date are allowed"));
         }
 
-        /* If the application has been running longer than CACHE_EXPIRE_HOURS it is possible the cache is now empty */
-        if(photosManifestCache.estimatedSize() == 0) {
-            fillCache();
+        return getManifestIndex(photoQuery.getRoverName()).flatMap(manifestIndex -> {
+            Optional<MarsClock> marsClock = manifestIndex.getMarsClock();
+            if(marsClock.isEmpty()) {
+                return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No sol and earth_date translation for the rover"));
+            }
+            int sol = photoQuery.getSol() != null ? photoQuery.getSol() : marsClock.get().latestSolOnOrBefore(photoQuery.getEpochDay());
+            if(sol == MarsClock.NO_SOL) {
+                return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "The earth_date is before the rover landed"));
+            }
+            return Mono.just(manifestIndex.versioned(
+                new MarsTime(sol, DateUtil.convertDateToNasaFormat(LocalDate.ofEpochDay(marsClock.get().toEpochDay(sol))))));
+        });
+    }
+
+    /**
+     * Retrieves a NASA Rover photo manifest for a specific date ({@code sol} or {@code earth_date} are valid date types).
+     *
+     * @param photoQuery {@link PhotoQuery} The rover to get the photo manifest for. Should have {@code sol} or
+     *                   {@code earth_date}.
+     * @return {@link Mono} of {@link Versioned} {@link ManifestPhoto}.
+     */
+    public Mono<Versioned<ManifestPhoto>> getRoverPhotoManifestByDate(PhotoQuery photoQuery) {
+        if(!photoQuery.hasDate()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid query parameters. Only sol or earth_date are allowed"));
         }
 
-        PhotosManifest photosManifest = photosManifestCache.getIfPresent(roverName.toLowerCase());
-        if(photosManifest == null) {
-            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "The rover name was not found"));
+        return getManifestIndex(photoQuery.getRoverName()).flatMap(manifestIndex -> (photoQuery.getSol() == null
+            ? getManifestForDate(manifestIndex, photoQuery.getEpochDay())
+            : getManifestForSol(manifestIndex, photoQuery.getSol()))
+            .map(manifestIndex::versioned));
+    }
+
+    /**
+     * Summarizes the NASA Rover photo manifest over a range of dates, either {@code start_sol} and {@code end_sol}, or
+     * {@code start_date} and {@code end_date}. Both ends of the range are inclusive.
+     *
+     * @param roverName The name of the NASA Mars rover to summarize the photo manifest for.
+     * @param requestParameters The HTTP query parameters. Should have a valid sol range or earth date range.
+     * @return {@link Mono} of {@link Versioned} {@link ManifestRange}.
+     */
+    public Mono<Versioned<ManifestRange>> getRoverPhotoManifestRange(String roverName, MultiValueMap<String, String> requestParameters) {
+        String startSol = requestParameters.getFirst("start_sol");
+        String endSol = requestParameters.getFirst("end_sol");
+        String startDate = requestParameters.getFirst("start_date");
+        String endDate = requestParameters.getFirst("end_date");
+
+        boolean solRange = startSol != null && endSol != null;
+        if(!solRange && (startDate == null || endDate == null)) {
+            return Mono.error(new InvalidQueryException("Invalid query parameters. Only start_sol and " +
+                "end_sol or start_date and end_date are allowed"));
         }
 
-        if(CollectionUtils.isEmpty(sol)) {
-            Optional<LocalDate> requestedDateInstance = DateUtil.getLocalDateFromDate(earthDate.get(0));
-            if(requestedDateInstance.isEmpty()) {
-                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid earth_date format"));
-            }
-            return getManifestForDate(photosManifest, DateUtil.convertDateToNasaFormat(requestedDateInstance.get()));
-        } else {
-            return getManifestForSol(photosManifest, sol.get(0));
+        long start;
+        long end;
+        try {
+            start = solRange ? PhotoQuery.parseCount(startSol, 0, "Invalid sol format")
+                : PhotoQuery.parseEpochDay(startDate, "Invalid earth_date format");
+            end = solRange ? PhotoQuery.parseCount(endSol, 0, "Invalid sol format")
+                : PhotoQuery.parseEpochDay(endDate, "Invalid earth_date format");
+        } catch(InvalidQueryException e) {
+            return Mono.error(e);
+        }
+        if(start > end) {
+            return Mono.error(new InvalidQueryException(solRange ? "start_sol is after end_sol" : "start_date is after end_date"));
         }
+
+        return getManifestIndex(roverName).map(manifestIndex -> manifestIndex.versioned(solRange
+            ? manifestIndex.summarizeSols((int) start, (int) end)
+            : manifestIndex.summarizeEpochDays(start, end)));
+    }
+
+    /**
+     * Finds the sols on which one or more cameras took photos, answered from the camera bit sets of the cached manifest.
+     *
+     * @param roverName The name of the NASA Mars rover to find the sols for.
+     * @param requestParameters The HTTP query parameters. Should have one or more {@code camera}, either repeated or comma
+     *                          separated, and optionally {@code match} of {@code all} (the default) or {@code any},
+     *                          {@code page} starting at 1 and {@code per_page}, parsed as for {@link PhotoQuery}.
+     * @return {@link Mono} of {@link Versioned} {@link CameraSols} with the {@link ManifestPhoto} of every matching sol
+     * on the page.
+     */
+    public Mono<Versioned<CameraSols>> getRoverPhotoManifestByCameras(String roverName, MultiValueMap<String, String> requestParameters) {
+        List<String> cameras = requestParameters.getOrDefault("camera", List.of()).stream()
+            .flatMap(camera -> Arrays.stream(camera.split(",")))
+            .map(String::trim)
+            .filter(camera -> !camera.isEmpty())
+            .map(camera -> camera.toUpperCase(Locale.ENGLISH))
+            .distinct()
+            .collect(Collectors.toList());
+        if(cameras.isEmpty()) {
+            return Mono.error(new InvalidQueryException("Invalid query parameters. At least one camera is required"));
+        }
+
+        String match = Optional.ofNullable(requestParameters.getFirst("match")).orElse("all").toLowerCase(Locale.ENGLISH);
+        if(!match.equals("all") && !match.equals("any")) {
+            return Mono.error(new InvalidQueryException("Invalid match. Only all or any are allowed"));
+        }
+
+        PhotoQuery photoQuery;
+        try {
+            photoQuery = PhotoQuery.parse(roverName, requestParameters);
+        } catch(InvalidQueryException e) {
+            return Mono.error(e);
+        }
+        int page = Optional.ofNullable(photoQuery.getPage()).orElse(1);
+        int perPage = Optional.ofNullable(photoQuery.getPerPage()).orElse(DEFAULT_PER_PAGE);
+        if(perPage > MAX_PER_PAGE) {
+            return Mono.error(new InvalidQueryException("Invalid page or per_page. Pages start at 1 " +
+                "and at most " + MAX_PER_PAGE + " sols are allowed per page"));
+        }
+
+        return getManifestIndex(roverName).map(manifestIndex -> {
+            BitSet sols = manifestIndex.findSolsWithCameras(cameras, match.equals("all"));
+            List<ManifestPhoto> photos = new ArrayList<>(perPage);
+            long skip = (long) (page - 1) * perPage;
+            for(int sol = sols.nextSetBit(0); sol >= 0 && photos.size() < perPage; sol = sols.nextSetBit(sol + 1)) {
+                if(skip > 0) {
+                    skip--;
+                } else {
+                    photos.add(manifestIndex.getBySol(sol));
+                }
+            }
+            return manifestIndex.versioned(new CameraSols(cameras.toArray(new String[0]), match, page, perPage,
+                sols.cardinality(), photos.toArray(new ManifestPhoto[0])));
+        });
     }
 
     /**
      * Retrieves the {@link ManifestPhoto} for the sol date.
      *
-     * @param photosManifest {@link PhotosManifest} containing all the photo manifest information for the NASA Mars rover.
+     * @param manifestIndex {@link ManifestIndex} containing all the photo manifest information for the NASA Mars rover.
      * @param sol The sol value to find the specific {@link ManifestPhoto} for.
      * @return {@link Mono} of {@link ManifestPhoto} upon success, or {@link Mono#error(Throwable)} with {@link ResponseStatusException}
      * containing the appropriate {@link HttpStatus} and message for the error.
      */
-    private Mono<ManifestPhoto> getManifestForSol(PhotosManifest photosManifest, String sol) {
-        try{
-            int solNum = Integer.parseInt(sol);
-            Optional<ManifestPhoto> photoManifest = Arrays.stream(photosManifest.getPhotoManifest().getPhotos())
-                    .filter(manifestPhoto -> manifestPhoto.getSol() == solNum)
-                    .findFirst();
-
-            return photoManifest
-                .map(Mono::just)
-                .orElseGet(() -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No photo manifest found for sol")));
-
-        }catch(NumberFormatException e) {
-            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sol format"));
+    private Mono<ManifestPhoto> getManifestForSol(ManifestIndex manifestIndex, int sol) {
+        ManifestPhoto manifestPhoto = manifestIndex.getBySol(sol);
+        if(manifestPhoto == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No photo manifest found for sol"));
         }
+        return Mono.just(manifestPhoto);
     }
 
     /**
      * Retrieves the {@link ManifestPhoto} for the {@code earth_date}.
      *
-     * @param photosManifest {@link PhotosManifest} containing all the photo manifest information for the NASA Mars rover.
-     * @param earthDate The date value to the specific {@link ManifestPhoto} for.
+     * @param manifestIndex {@link ManifestIndex} containing all the photo manifest information for the NASA Mars rover.
+     * @param epochDay The epoch day of the date to find the specific {@link ManifestPhoto} for.
      * @return {@link Mono} of {@link ManifestPhoto} upon success, or {@link Mono#error(Throwable)} with {@link ResponseStatusException}
      * containing the appropriate {@link HttpStatus} and message for the error.
      */
-    private Mono<ManifestPhoto> getManifestForDate(PhotosManifest photosManifest, String earthDate) {
-        Optional<ManifestPhoto> photoManifest = Arrays.stream(photosManifest.getPhotoManifest().getPhotos())
-                .filter(manifestPhoto -> manifestPhoto.getEarthDate().equals(earthDate))
-                .findFirst();
-
-        return photoManifest
-            .map(Mono::just)
-            .orElseGet(() -> Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No photo manifest found for earth_date")));
+    private Mono<ManifestPhoto> getManifestForDate(ManifestIndex manifestIndex, long epochDay) {
+        ManifestPhoto manifestPhoto = manifestIndex.getByEpochDay(epochDay);
+        if(manifestPhoto == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No photo manifest found for earth_date"));
+        }
+        return Mono.just(manifestPhoto);
     }
 }
@@ -2,8 +2,6 @@ package com.github.zachsand.nasa.mars.rover.util;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.time.format.ResolverStyle;
-import java.util.Locale;
 import java.util.Optional;
 
 /**
@@ -11,15 +9,49 @@ import java.util.Optional;
  */
 public class DateUtil {
 
-    private static final DateTimeFormatter VALID_DATE_FORMATS = DateTimeFormatter.ofPattern(""
-                    + "[MM/dd/uuuu]"
-                    + "[MM/dd/uu]"
-                    + "[MMMM d, uuuu]"
-                    + "[MMM-d-uuuu]"
-                    + "[uuuu-MM-dd]"
-                    + "[M/d/uuuu]"
-            , Locale.ENGLISH)
-            .withResolverStyle(ResolverStyle.STRICT);
+    /**
+     * Returned by {@link #parseEpochDay(String)} for a date that isn't of a valid format.
+     */
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+
+    /*
+     * The valid date formats, as DateTimeFormatter patterns in STRICT mode. Like optional sections of a DateTimeFormatter,
+     * each one is tried in turn where the last one that matched ended, and may only repeat fields with the same value.
+     */
+    private static final String[] VALID_DATE_FORMATS = {
+        "MM/dd/uuuu",
+        "MM/dd/uu",
+        "MMMM d, uuuu",
+        "MMM-d-uuuu",
+        "uuuu-MM-dd",
+        "M/d/uuuu"
+    };
+
+    private static final String[] MONTH_NAMES = {"January", "February", "March", "April", "May", "June", "July",
+        "August", "September", "October", "November", "December"};
+
+    private static final String[] MONTH_ABBREVIATIONS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep",
+        "Oct", "Nov", "Dec"};
+
+    /* Every format matches at most once, so no valid date is longer than all of them with their widest fields */
+    private static final int MAX_DATE_LENGTH = 256;
+
+    /* Most digits of a field without a fixed width, as for a DateTimeFormatter */
+    private static final int MAX_DIGITS = 19;
+
+    /* Base of two digit years */
+    private static final int REDUCED_YEAR_BASE = 2000;
+
+    private static final long MAX_YEAR = 999_999_999;
+
+    /* Stands in for any parsed value that can't be part of a valid date, so it fits in a parsed token */
+    private static final long OUT_OF_RANGE = MAX_YEAR + 1;
+
+    private static final long UNSET = Long.MAX_VALUE;
+
+    private static final long NO_MATCH = Long.MIN_VALUE;
+
+    private static final long DAYS_0000_TO_1970 = 719_528;
 
     private static final DateTimeFormatter NASA_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
@@ -30,11 +62,75 @@ public class DateUtil {
      * @return {@link Optional} of {@link LocalDate}.
      */
     public static Optional<LocalDate> getLocalDateFromDate(String date) {
-        try{
-            return Optional.of(LocalDate.parse(date, VALID_DATE_FORMATS));
-        } catch (Exception e) {
-            return Optional.empty();
+        long epochDay = parseEpochDay(date);
+        return epochDay == INVALID_DATE ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * Parses a date of any of the valid formats into its epoch day, without allocating or throwing, so malformed dates
+     * are as cheap to turn away as valid ones are to parse. Accepts exactly the dates a {@link DateTimeFormatter} of
+     * {@code [MM/dd/uuuu][MM/dd/uu][MMMM d, uuuu][MMM-d-uuuu][uuuu-MM-dd][M/d/uuuu]} accepts in STRICT mode.
+     *
+     * @param date String representation of a date, or null.
+     * @return The epoch day of the date, as {@link LocalDate#toEpochDay()}, or {@link #INVALID_DATE}.
+     */
+    public static long parseEpochDay(String date) {
+        if(date == null || date.length() > MAX_DATE_LENGTH) {
+            return INVALID_DATE;
         }
+
+        long year = UNSET;
+        long month = UNSET;
+        long day = UNSET;
+        int position = 0;
+        for(String format : VALID_DATE_FORMATS) {
+            long formatYear = year;
+            long formatMonth = month;
+            long formatDay = day;
+            int end = position;
+            for(int i = 0; i < format.length() && end >= 0; ) {
+                char letter = format.charAt(i);
+                if(letter != 'M' && letter != 'd' && letter != 'u') {
+                    end = end < date.length() && date.charAt(end) == letter ? end + 1 : -1;
+                    i++;
+                    continue;
+                }
+
+                int width = 1;
+                while(i + width < format.length() && format.charAt(i + width) == letter) {
+                    width++;
+                }
+                i += width;
+
+                long token = parseField(date, end, letter, width);
+                long value = token >> 16;
+                long parsed = letter == 'u' ? formatYear : letter == 'M' ? formatMonth : formatDay;
+                if(token == NO_MATCH || (parsed != UNSET && parsed != value)) {
+                    end = -1;
+                } else {
+                    if(letter == 'u') {
+                        formatYear = value;
+                    } else if(letter == 'M') {
+                        formatMonth = value;
+                    } else {
+                        formatDay = value;
+                    }
+                    end = (int) (token & 0xFFFF);
+                }
+            }
+            if(end >= 0) {
+                year = formatYear;
+                month = formatMonth;
+                day = formatDay;
+                position = end;
+            }
+        }
+
+        if(position != date.length() || year == UNSET || month == UNSET || day == UNSET
+            || Math.abs(year) > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, (int) month)) {
+            return INVALID_DATE;
+        }
+        return toEpochDay(year, month, day);
     }
 
     /**
@@ -48,4 +144,108 @@ public class DateUtil {
     public static String convertDateToNasaFormat(LocalDate date) {
         return date.format(NASA_DATE_FORMAT);
     }
+
+    /**
+     * Parses the field of a pattern letter, with the widths and signs a {@link DateTimeFormatter} allows for it in STRICT
+     * mode.
+     *
+     * @return The value of the field shifted left by 16 bits, with the position after it in the low 16 bits, or
+     * {@link #NO_MATCH}.
+     */
+    private static long parseField(String date, int position, char letter, int width) {
+        if(letter == 'M' && width >= 3) {
+            String[] names = width == 3 ? MONTH_ABBREVIATIONS : MONTH_NAMES;
+            for(int month = 0; month < names.length; month++) {
+                if(date.startsWith(names[month], position)) {
+                    return token(month + 1, position + names[month].length());
+                }
+            }
+            return NO_MATCH;
+        }
+
+        if(width == 2) {
+            /* Exactly two digits, without a sign */
+            if(position + 2 > date.length() || !isDigit(date.charAt(position)) || !isDigit(date.charAt(position + 1))) {
+                return NO_MATCH;
+            }
+            long value = (date.charAt(position) - '0') * 10 + (date.charAt(position + 1) - '0');
+            return token(letter == 'u' ? REDUCED_YEAR_BASE + value : value, position + 2);
+        }
+
+        char sign = position < date.length() ? date.charAt(position) : 0;
+        boolean negative = sign == '-';
+        /* A plus sign is only allowed on years, and only for more digits than the width */
+        boolean positive = sign == '+' && letter == 'u';
+        int start = negative || positive ? position + 1 : position;
+        int end = start;
+        long value = 0;
+        while(end < date.length() && end - start < MAX_DIGITS && isDigit(date.charAt(end))) {
+            int digit = date.charAt(end) - '0';
+            if(value > (Long.MAX_VALUE - digit) / 10) {
+                /* The digit that would overflow is left unparsed */
+                break;
+            }
+            value = value * 10 + digit;
+            end++;
+        }
+
+        int digits = end - start;
+        if(digits < width || (negative && value == 0)) {
+            return NO_MATCH;
+        }
+        if(letter == 'u' && (positive ? digits <= width : !negative && digits > width)) {
+            return NO_MATCH;
+        }
+        if(value > MAX_YEAR || (negative && letter != 'u')) {
+            return token(OUT_OF_RANGE, end);
+        }
+        return token(negative ? -value : value, end);
+    }
+
+    private static long token(long value, int end) {
+        return value << 16 | end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        switch(month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Same as {@link LocalDate#toEpochDay()}, for a date that is known to be valid.
+     */
+    private static long toEpochDay(long year, long month, long day) {
+        long total = 365 * year;
+        if(year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if(month > 2) {
+            total--;
+            if(!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
 }
@@ -0,0 +1,126 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * {@link ImageResizer} resizes JPEG images with nothing but ImageIO and Java 2D. Images are kept in memory from start to
+ * end, rather than being cached in temporary files by ImageIO.
+ *
+ * Resizing is CPU bound, so it should not be called from the event loop.
+ */
+public class ImageResizer {
+
+    /**
+     * Resizes a JPEG image to fit within a width and height, keeping its aspect ratio. Images are only ever made
+     * smaller, an image that already fits is only encoded again with the requested quality.
+     *
+     * @param jpeg The JPEG image data.
+     * @param maxWidth The width to fit the image within, or 0 for any width.
+     * @param maxHeight The height to fit the image within, or 0 for any height.
+     * @param quality The JPEG quality of the resized image, between 0 and 1.
+     * @return The resized JPEG image data.
+     * @throws IOException If the image can not be read.
+     */
+    public static byte[] resize(byte[] jpeg, int maxWidth, int maxHeight, float quality) throws IOException {
+        return writeJpeg(scaleToFit(read(jpeg), maxWidth, maxHeight), quality);
+    }
+
+    /**
+     * Reads an image.
+     *
+     * @param image The image data, in any format ImageIO can read.
+     * @return {@link BufferedImage} of the image.
+     * @throws IOException If the image can not be read.
+     */
+    public static BufferedImage read(byte[] image) throws IOException {
+        BufferedImage bufferedImage = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(image)));
+        if(bufferedImage == null) {
+            throw new IOException("Unsupported image format");
+        }
+        return bufferedImage;
+    }
+
+    /**
+     * Scales an image to fit within a width and height, keeping its aspect ratio. Images are only ever made smaller.
+     *
+     * @param image {@link BufferedImage} The image to scale.
+     * @param maxWidth The width to fit the image within, or 0 for any width.
+     * @param maxHeight The height to fit the image within, or 0 for any height.
+     * @return {@link BufferedImage} RGB copy of the image, scaled to fit.
+     */
+    public static BufferedImage scaleToFit(BufferedImage image, int maxWidth, int maxHeight) {
+        double scale = 1;
+        if(maxWidth > 0) {
+            scale = Math.min(scale, (double) maxWidth / image.getWidth());
+        }
+        if(maxHeight > 0) {
+            scale = Math.min(scale, (double) maxHeight / image.getHeight());
+        }
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        return scale(image, width, height);
+    }
+
+    /**
+     * Scales in steps of at most half the size, since a single bilinear step skips over most of the pixels of a much
+     * larger image and leaves the result jagged.
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage scaled = image;
+        int stepWidth = image.getWidth();
+        int stepHeight = image.getHeight();
+        do {
+            stepWidth = Math.max(width, stepWidth / 2);
+            stepHeight = Math.max(height, stepHeight / 2);
+            scaled = draw(scaled, stepWidth, stepHeight);
+        } while(stepWidth != width || stepHeight != height);
+        return scaled;
+    }
+
+    /* Always draws into a new RGB image, so grayscale and other image types are written as plain RGB JPEGs */
+    private static BufferedImage draw(BufferedImage image, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Encodes an image as a JPEG.
+     *
+     * @param image {@link BufferedImage} The RGB image to encode.
+     * @param quality The JPEG quality, between 0 and 1.
+     * @return The JPEG image data.
+     * @throws IOException If the image can not be encoded.
+     */
+    public static byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try(MemoryCacheImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output)) {
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionQuality(quality);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,266 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * {@link JsonFieldProjector} projects the objects of a top level array field of a JSON document, like the photos of a
+ * rover photos response, down to a set of fields. The document is read with Jackson's non-blocking parser as its buffers
+ * arrive, and only the tokens of the requested fields are written out, so neither the whole document nor any object of
+ * it is ever materialized.
+ *
+ * Fields are named as in the JSON document, with a dot for a field of a nested object, like {@code camera.name}. A field
+ * that names a nested object, like {@code camera}, projects the whole object. The output is an object with just the
+ * projected array field, in the order of the input.
+ *
+ * Not thread safe, buffers must be fed one after the other.
+ */
+public class JsonFieldProjector {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String arrayField;
+
+    private final Set<String> fields;
+
+    private final JsonParser parser;
+
+    private final ByteArrayBuilder output = new ByteArrayBuilder();
+
+    private final JsonGenerator generator;
+
+    /* Number of containers open in the input */
+    private int depth;
+
+    private boolean inArray;
+
+    private boolean arrayDone;
+
+    /* Paths of the nested objects being projected within the current array element, innermost first */
+    private final Deque<String> objectPaths = new ArrayDeque<>();
+
+    /* The depth to return to before the current value stops being copied or skipped, or -1 if neither */
+    private int copyUntilDepth = -1;
+
+    private int skipUntilDepth = -1;
+
+    /* Whether the next value is the first token of a value being copied or skipped */
+    private boolean copyPending;
+
+    private boolean skipPending;
+
+    /**
+     * {@link JsonFieldProjector} projects the objects of a top level array field of a JSON document down to a set of
+     * fields.
+     *
+     * @param arrayField The top level field of the array to project, like {@code photos}.
+     * @param fields The fields to keep of every object of the array.
+     */
+    public JsonFieldProjector(String arrayField, Set<String> fields) {
+        this.arrayField = arrayField;
+        this.fields = fields;
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+            this.generator = JSON_FACTORY.createGenerator(output);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(arrayField);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Projects a JSON document as its buffers arrive.
+     *
+     * @param document {@link Flux} of {@link DataBuffer} of the JSON document. Every buffer is released once it is read.
+     * @param arrayField The top level field of the array to project, like {@code photos}.
+     * @param fields The fields to keep of every object of the array.
+     * @return {@link Flux} of {@link DataBuffer} of the projected JSON document.
+     */
+    public static Flux<DataBuffer> project(Flux<DataBuffer> document, String arrayField, Set<String> fields) {
+        return Flux.defer(() -> {
+            JsonFieldProjector projector = new JsonFieldProjector(arrayField, fields);
+            return document.map(projector::feed)
+                .concatWith(Mono.fromCallable(projector::finish))
+                .filter(dataBuffer -> dataBuffer.readableByteCount() > 0);
+        });
+    }
+
+    /**
+     * Feeds the next buffer of the document, and releases it.
+     *
+     * @param dataBuffer {@link DataBuffer} The next buffer of the JSON document.
+     * @return {@link DataBuffer} with the projected output for as much of the document as has been fed, possibly empty.
+     */
+    public DataBuffer feed(DataBuffer dataBuffer) {
+        byte[] bytes = new byte[dataBuffer.readableByteCount()];
+        dataBuffer.read(bytes);
+        DataBufferUtils.release(dataBuffer);
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            return drain();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ends the document.
+     *
+     * @return {@link DataBuffer} with the rest of the projected output.
+     * @throws IOException If the document was not complete.
+     */
+    public DataBuffer finish() throws IOException {
+        ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+        drain();
+        if(depth != 0) {
+            throw new JsonParseException(parser, "Unexpected end of the JSON document");
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
+        return toDataBuffer();
+    }
+
+    private DataBuffer drain() throws IOException {
+        JsonToken token;
+        while((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            onToken(token);
+        }
+        generator.flush();
+        return toDataBuffer();
+    }
+
+    private void onToken(JsonToken token) throws IOException {
+        int depthBefore = depth;
+        if(token.isStructStart()) {
+            depth++;
+        } else if(token.isStructEnd()) {
+            depth--;
+        }
+
+        if(skipPending || skipUntilDepth >= 0) {
+            skip(token, depthBefore);
+            return;
+        }
+        if(copyPending || copyUntilDepth >= 0) {
+            copy(token, depthBefore);
+            return;
+        }
+
+        if(!inArray) {
+            /* The array field is an array directly within the root object */
+            if(!arrayDone && depthBefore == 1 && token == JsonToken.START_ARRAY
+                && arrayField.equals(parser.getParsingContext().getParent().getCurrentName())) {
+                inArray = true;
+            }
+            return;
+        }
+
+        /* Elements of the array are at depth 3 */
+        if(depthBefore == 2) {
+            if(token == JsonToken.END_ARRAY) {
+                inArray = false;
+                arrayDone = true;
+            } else if(token == JsonToken.START_OBJECT) {
+                generator.writeStartObject();
+            } else {
+                /* Not an object, so there are no fields to project */
+                startValue(token, depthBefore, false);
+            }
+            return;
+        }
+
+        if(token == JsonToken.END_OBJECT) {
+            if(depth > 2) {
+                objectPaths.pop();
+            }
+            generator.writeEndObject();
+            return;
+        }
+
+        if(token == JsonToken.FIELD_NAME) {
+            String path = objectPaths.isEmpty() ? parser.getCurrentName() : objectPaths.peek() + "." + parser.getCurrentName();
+            if(fields.contains(path)) {
+                generator.writeFieldName(parser.getCurrentName());
+                copyPending = true;
+            } else if(hasNestedField(path)) {
+                objectPaths.push(path);
+                generator.writeFieldName(parser.getCurrentName());
+            } else {
+                skipPending = true;
+            }
+            return;
+        }
+
+        if(token == JsonToken.START_OBJECT) {
+            generator.writeStartObject();
+        } else {
+            /* A nested field was asked for, but this isn't an object after all */
+            objectPaths.pop();
+            generator.writeNull();
+            startValue(token, depthBefore, false);
+        }
+    }
+
+    private void startValue(JsonToken token, int depthBefore, boolean copyValue) throws IOException {
+        if(copyValue) {
+            copyPending = true;
+            copy(token, depthBefore);
+        } else {
+            skipPending = true;
+            skip(token, depthBefore);
+        }
+    }
+
+    private void copy(JsonToken token, int depthBefore) throws IOException {
+        generator.copyCurrentEvent(parser);
+        if(copyPending) {
+            copyPending = false;
+            if(token.isStructStart()) {
+                copyUntilDepth = depthBefore;
+            }
+        } else if(depth == copyUntilDepth) {
+            copyUntilDepth = -1;
+        }
+    }
+
+    private void skip(JsonToken token, int depthBefore) {
+        if(skipPending) {
+            skipPending = false;
+            if(token.isStructStart()) {
+                skipUntilDepth = depthBefore;
+            }
+        } else if(depth == skipUntilDepth) {
+            skipUntilDepth = -1;
+        }
+    }
+
+    private boolean hasNestedField(String path) {
+        String prefix = path + ".";
+        for(String field : fields) {
+            if(field.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private DataBuffer toDataBuffer() {
+        byte[] bytes = output.toByteArray();
+        output.reset();
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * {@link MarsClock} translates between the sols of a NASA Mars rover and earth dates with arithmetic alone, from the
+ * landing date of the rover and the length of a sol. The NASA Mars Rover API dates every sol on the earth date that
+ * the number of whole earth days since landing falls on, which is what this reproduces, so a translation needs neither
+ * the manifest of the rover nor a request to the NASA Mars Rover API, and works for sols and earth dates without photos.
+ *
+ * Sols are longer than earth days, so every sol has an earth date of its own, but now and then an earth date has no
+ * sol dated on it.
+ */
+public class MarsClock {
+
+    /**
+     * Returned for an earth date that has no sol dated on it.
+     */
+    public static final int NO_SOL = -1;
+
+    /* Mean length of a sol, 88775.244 seconds */
+    private static final long SOL_MILLIS = 88_775_244;
+
+    private static final long DAY_MILLIS = 86_400_000;
+
+    /* Days after landing of the last sol that fits in an int, later earth dates have no sol */
+    private static final long MAX_DAYS = Integer.MAX_VALUE * SOL_MILLIS / DAY_MILLIS;
+
+    private final long landingEpochDay;
+
+    /**
+     * {@link MarsClock} translates between the sols of a NASA Mars rover and earth dates.
+     *
+     * @param landingEpochDay The landing date of the rover as {@link LocalDate#toEpochDay()}.
+     */
+    public MarsClock(long landingEpochDay) {
+        this.landingEpochDay = landingEpochDay;
+    }
+
+    /**
+     * @param landingDate The landing date of the rover, as given by the NASA Mars Rover API, or null.
+     * @return {@link Optional} of {@link MarsClock} for the rover, empty if the landing date isn't a valid date.
+     */
+    public static Optional<MarsClock> forLandingDate(String landingDate) {
+        long landingEpochDay = DateUtil.parseEpochDay(landingDate);
+        return landingEpochDay == DateUtil.INVALID_DATE ? Optional.empty() : Optional.of(new MarsClock(landingEpochDay));
+    }
+
+    /**
+     * @param sol A sol of zero or more.
+     * @return The earth date of the sol as {@link LocalDate#toEpochDay()}.
+     */
+    public long toEpochDay(int sol) {
+        return landingEpochDay + sol * SOL_MILLIS / DAY_MILLIS;
+    }
+
+    /**
+     * @param epochDay An earth date as {@link LocalDate#toEpochDay()}.
+     * @return The sol dated on the earth date, or {@link #NO_SOL} if there is none.
+     */
+    public int toSol(long epochDay) {
+        int sol = latestSolOnOrBefore(epochDay);
+        return sol != NO_SOL && toEpochDay(sol) == epochDay ? sol : NO_SOL;
+    }
+
+    /**
+     * @param epochDay An earth date as {@link LocalDate#toEpochDay()}.
+     * @return The last sol dated on or before the earth date, which is the sol under way on an earth date without a sol
+     * of its own, or {@link #NO_SOL} if the earth date is before the landing.
+     */
+    public int latestSolOnOrBefore(long epochDay) {
+        long days = epochDay - landingEpochDay;
+        if(days < 0 || days > MAX_DAYS) {
+            return NO_SOL;
+        }
+        /* The largest sol with sol * SOL_MILLIS < (days + 1) * DAY_MILLIS */
+        return (int) (((days + 1) * DAY_MILLIS - 1) / SOL_MILLIS);
+    }
+}
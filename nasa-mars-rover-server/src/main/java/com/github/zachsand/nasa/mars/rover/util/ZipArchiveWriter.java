@@ -0,0 +1,117 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * {@link ZipArchiveWriter} writes ZIP entries one at a time, handing back the bytes written for each entry so they can
+ * be sent right away instead of building the whole archive in memory. An entry can also be written in parts as its
+ * content arrives, see {@link #startEntry(String)}. Not thread safe, entries must be written one after the other.
+ */
+public class ZipArchiveWriter {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    private final ZipOutputStream zipOutputStream = new ZipOutputStream(output);
+
+    public ZipArchiveWriter() {
+        /* Only used by entries written in parts, which JPEG images are, so don't spend time compressing them again */
+        zipOutputStream.setLevel(Deflater.NO_COMPRESSION);
+    }
+
+    /**
+     * Writes an uncompressed entry, since JPEG images don't get any smaller by compressing them again.
+     *
+     * @param name The name of the entry within the archive.
+     * @param data The content of the entry.
+     * @return {@link DataBuffer} with the bytes of the entry.
+     */
+    public DataBuffer writeEntry(String name, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ZipEntry zipEntry = new ZipEntry(name);
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(data.length);
+        zipEntry.setCrc(crc.getValue());
+        try {
+            zipOutputStream.putNextEntry(zipEntry);
+            zipOutputStream.write(data);
+            zipOutputStream.closeEntry();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return drain();
+    }
+
+    /**
+     * Starts an entry whose content is written in parts with {@link #writeEntryData(DataBuffer)}, for content that
+     * isn't all there yet. The size and checksum of the entry follow its content, which the STORED method doesn't
+     * allow, so the entry is deflated without compression instead.
+     *
+     * @param name The name of the entry within the archive.
+     * @return {@link DataBuffer} with the bytes of the entry header.
+     */
+    public DataBuffer startEntry(String name) {
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry(name));
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return drain();
+    }
+
+    /**
+     * Writes the next part of the content of the entry started by {@link #startEntry(String)}.
+     *
+     * @param data The next part of the content, released once written.
+     * @return {@link DataBuffer} with the bytes written for the part.
+     */
+    public DataBuffer writeEntryData(DataBuffer data) {
+        try(InputStream input = data.asInputStream(true)) {
+            input.transferTo(zipOutputStream);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return drain();
+    }
+
+    /**
+     * Ends the entry started by {@link #startEntry(String)}.
+     *
+     * @return {@link DataBuffer} with the bytes of the end of the entry.
+     */
+    public DataBuffer finishEntry() {
+        try {
+            zipOutputStream.closeEntry();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return drain();
+    }
+
+    /**
+     * Writes the central directory that ends the archive.
+     *
+     * @return {@link DataBuffer} with the bytes of the central directory.
+     * @throws IOException If the central directory can not be written.
+     */
+    public DataBuffer finish() throws IOException {
+        zipOutputStream.finish();
+        return drain();
+    }
+
+    private DataBuffer drain() {
+        byte[] bytes = output.toByteArray();
+        output.reset();
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
@@ -2,18 +2,17 @@ package com.github.zachsand.nasa.mars.rover;
 
 import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
 import com.github.zachsand.nasa.mars.rover.model.PhotoImage;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
 import com.github.zachsand.nasa.mars.rover.service.PhotoDownloadService;
 import com.github.zachsand.nasa.mars.rover.util.DateUtil;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.util.LinkedMultiValueMap;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -41,18 +40,16 @@ public class PhotoDownloadE2ETest {
             .map(DateUtil::getLocalDateFromDate)
             .filter(Optional::isPresent)
             .map(Optional::get)
-            .map(DateUtil::convertDateToNasaFormat)
             .collect(Collectors.toList())
             .forEach(date -> {
-                LinkedMultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
-                queryParams.put("earth_date", Collections.singletonList(date));
-                PhotoImage photoImage = photoDownloadService.downloadPhoto("curiosity", String.valueOf(
+                PhotoQuery photoQuery = PhotoQuery.forEarthDate("curiosity", date);
+                PhotoImage photoImage = photoDownloadService.downloadPhoto(photoQuery, String.valueOf(
                     Arrays.stream(Objects.requireNonNull(
-                            nasaRoverClient.getRoverPhotos("curiosity", queryParams).block()).getPhotos()
+                            nasaRoverClient.getRoverPhotos(photoQuery).block()).getPhotos()
                     )
                     .findFirst()
                     .orElseThrow()
-                    .getId()), queryParams).block();
+                    .getId())).block();
                 assertNotNull(photoImage);
                 assertNotNull(photoImage.getPhotoName());
                 assertNotNull(photoImage.getImageData());
@@ -0,0 +1,85 @@
+package com.github.zachsand.nasa.mars.rover.cache;
+
+import com.github.zachsand.nasa.mars.rover.config.PhotoStoreConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhotoStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private PhotoStore createPhotoStore(long maxSizeBytes) throws IOException {
+        PhotoStore photoStore = new PhotoStore(new PhotoStoreConfiguration(directory.toString(), DataSize.ofBytes(maxSizeBytes)));
+        photoStore.rebuildIndex();
+        return photoStore;
+    }
+
+    @Test
+    public void whenPhotoStored_shouldReadSameBytes() throws IOException {
+        PhotoStore photoStore = createPhotoStore(1024);
+        byte[] imageData = {(byte) 0xFF, (byte) 0xD8, 1, 2, 3, (byte) 0xFF, (byte) 0xD9};
+
+        assertTrue(photoStore.storePhoto("Curiosity", 42, imageData));
+
+        assertArrayEquals(imageData, photoStore.readPhoto("curiosity", 42).orElseThrow());
+        assertTrue(photoStore.readPhoto("curiosity", 43).isEmpty());
+    }
+
+    @Test
+    public void whenPhotoStored_shouldFindFile() throws IOException {
+        PhotoStore photoStore = createPhotoStore(1024);
+        photoStore.storePhoto("curiosity", 42, new byte[10]);
+
+        Path path = photoStore.findPhoto("Curiosity", 42).orElseThrow();
+
+        assertEquals(10, Files.size(path));
+        Files.delete(path);
+        assertTrue(photoStore.findPhoto("curiosity", 42).isEmpty());
+        assertEquals(0, photoStore.getPhotoCount());
+    }
+
+    @Test
+    public void whenOverMaxSize_shouldEvictLeastRecentlyUsed() throws IOException {
+        PhotoStore photoStore = createPhotoStore(300);
+
+        photoStore.storePhoto("curiosity", 1, new byte[100]);
+        photoStore.storePhoto("curiosity", 2, new byte[100]);
+        photoStore.storePhoto("curiosity", 3, new byte[100]);
+        /* Reading photo 1 makes photo 2 the least recently used */
+        assertTrue(photoStore.readPhoto("curiosity", 1).isPresent());
+        photoStore.storePhoto("curiosity", 4, new byte[100]);
+
+        assertTrue(photoStore.readPhoto("curiosity", 1).isPresent());
+        assertTrue(photoStore.readPhoto("curiosity", 2).isEmpty());
+        assertFalse(Files.exists(directory.resolve("curiosity").resolve("2.jpg")));
+        assertEquals(300, photoStore.getTotalSizeBytes());
+    }
+
+    @Test
+    public void whenRestarted_shouldRebuildIndexAndRemoveTemporaryFiles() throws IOException {
+        createPhotoStore(1024).storePhoto("spirit", 7, new byte[10]);
+        Path partialWrite = Files.createFile(directory.resolve("spirit").resolve("8-123.tmp"));
+
+        PhotoStore restartedPhotoStore = createPhotoStore(1024);
+
+        assertEquals(1, restartedPhotoStore.getPhotoCount());
+        assertTrue(restartedPhotoStore.readPhoto("spirit", 7).isPresent());
+        assertFalse(Files.exists(partialWrite));
+    }
+
+    @Test
+    public void whenRoverNameIsNotPlain_shouldNotStore() throws IOException {
+        PhotoStore photoStore = createPhotoStore(1024);
+
+        assertFalse(photoStore.storePhoto("../curiosity", 1, new byte[10]));
+        assertTrue(photoStore.readPhoto("../curiosity", 1).isEmpty());
+    }
+}
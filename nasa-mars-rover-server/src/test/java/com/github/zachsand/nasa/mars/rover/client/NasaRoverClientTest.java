@@ -0,0 +1,65 @@
+package com.github.zachsand.nasa.mars.rover.client;
+
+import com.github.zachsand.nasa.mars.rover.config.NasaApiConfiguration;
+import com.github.zachsand.nasa.mars.rover.index.PhotoIdIndex;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class NasaRoverClientTest {
+
+    private final NasaRoverClient nasaRoverClient = spy(new NasaRoverClient(
+        new NasaApiConfiguration("http://localhost", "/rovers/%s/photos", "/manifests/%s", "/rovers", false),
+        new PhotoIdIndex(), WebClient.builder(), new SimpleMeterRegistry()));
+
+    private void givenPage(int page, int photoCount) {
+        Photo[] photos = new Photo[photoCount];
+        for(int i = 0; i < photoCount; i++) {
+            photos[i] = new Photo(page * 100 + i, 1000, null, "http://img.com/" + i, "2015-06-03", null);
+        }
+        doReturn(Mono.just(new PhotoList(photos))).when(nasaRoverClient).getRoverPhotos(
+            argThat(photoQuery -> photoQuery != null && Integer.valueOf(page).equals(photoQuery.getPage())));
+    }
+
+    private static PhotoQuery solQuery() {
+        MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        queryParams.add("sol", "1000");
+        queryParams.add("per_page", "2");
+        return PhotoQuery.parse("curiosity", queryParams);
+    }
+
+    @Test
+    public void whenStreamRoverPhotos_shouldWalkPagesUntilShortPage() {
+        givenPage(1, 2);
+        givenPage(2, 2);
+        givenPage(3, 1);
+        givenPage(4, 0);
+
+        StepVerifier.create(nasaRoverClient.streamRoverPhotos(solQuery()).map(Photo::getId))
+            .expectNext(100, 101, 200, 201, 300)
+            .verifyComplete();
+        verify(nasaRoverClient, never()).getRoverPhotos(argThat(photoQuery ->
+            photoQuery != null && Integer.valueOf(5).equals(photoQuery.getPage())));
+    }
+
+    @Test
+    public void whenLastPageFull_shouldStopAtEmptyPage() {
+        givenPage(1, 2);
+        givenPage(2, 0);
+        givenPage(3, 0);
+
+        StepVerifier.create(nasaRoverClient.streamRoverPhotos(solQuery()).map(Photo::getId))
+            .expectNext(100, 101)
+            .verifyComplete();
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import com.github.zachsand.nasa.mars.rover.model.PhotoRover;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JacksonConfigurationTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+        .registerModule(new JacksonConfiguration().internedValuesModule());
+
+    @Test
+    public void whenDeserializeEqualCamerasAndRovers_shouldShareInstances() throws Exception {
+        PhotoList photoList = objectMapper.readValue("{\"photos\":["
+            + "{\"id\":1,\"camera\":{\"id\":20,\"name\":\"FHAZ\"},\"rover\":{\"id\":5,\"name\":\"Curiosity\"}},"
+            + "{\"id\":2,\"camera\":{\"id\":20,\"name\":\"FHAZ\"},\"rover\":{\"id\":5,\"name\":\"Curiosity\"}},"
+            + "{\"id\":3,\"camera\":{\"id\":22,\"name\":\"NAVCAM\"},\"rover\":{\"id\":5,\"name\":\"Curiosity\"}}"
+            + "]}", PhotoList.class);
+
+        assertSame(photoList.getPhotos()[0].getCamera(), photoList.getPhotos()[1].getCamera());
+        assertNotSame(photoList.getPhotos()[0].getCamera(), photoList.getPhotos()[2].getCamera());
+        assertSame(photoList.getPhotos()[0].getRover(), photoList.getPhotos()[2].getRover());
+    }
+
+    @Test
+    public void whenDeserializeInternedTypes_shouldReadImmutableInstances() throws Exception {
+        Camera camera = objectMapper.readValue("{\"id\":20,\"name\":\"FHAZ\",\"rover_id\":5,"
+            + "\"full_name\":\"Front Hazard Avoidance Camera\"}", Camera.class);
+
+        assertEquals(new Camera(20, "FHAZ", 5, "Front Hazard Avoidance Camera"), camera);
+        for(Class<?> type : new Class<?>[] {Camera.class, PhotoRover.class}) {
+            assertTrue(Arrays.stream(type.getMethods()).map(Method::getName).noneMatch(name -> name.startsWith("set")),
+                type.getSimpleName() + " is shared, so it must not have setters");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.zachsand.nasa.mars.rover.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.Rover;
+import com.github.zachsand.nasa.mars.rover.model.RoverList;
+import com.github.zachsand.nasa.mars.rover.service.RoverCatalog;
+import io.micrometer.core.instrument.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class MetricsConfigurationTest {
+
+    private final NasaRoverClient nasaRoverClient = mock(NasaRoverClient.class);
+
+    private final RoverCatalog roverCatalog = new RoverCatalog(nasaRoverClient, new ObjectMapper());
+
+    private final RoverTags roverTags = new RoverTags(roverCatalog);
+
+    private final MetricsConfiguration metricsConfiguration = new MetricsConfiguration(roverTags);
+
+    private void givenRovers(String... roverNames) {
+        Rover[] rovers = new Rover[roverNames.length];
+        for(int i = 0; i < roverNames.length; i++) {
+            rovers[i] = new Rover(i, roverNames[i], "2012-08-06", "2011-11-26", "active", 1, "2012-08-07", 1, new Camera[0]);
+        }
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(new RoverList(rovers)));
+        roverCatalog.refresh().block();
+    }
+
+    private static Map<String, String> tagsOf(Iterable<Tag> tags) {
+        Map<String, String> tagValues = new HashMap<>();
+        tags.forEach(tag -> tagValues.put(tag.getKey(), tag.getValue()));
+        return tagValues;
+    }
+
+    @Test
+    public void whenImageRequest_shouldTagEndpointInsteadOfUrl() {
+        givenRovers("Curiosity");
+        ClientRequest request = ClientRequest.create(HttpMethod.GET, URI.create("http://mars.nasa.gov/msl-raw-images/1234.JPG"))
+            .attribute(MetricsConfiguration.ENDPOINT_ATTRIBUTE, "image")
+            .attribute(MetricsConfiguration.ROVER_ATTRIBUTE, "Curiosity")
+            .build();
+
+        Map<String, String> tags = tagsOf(metricsConfiguration.upstreamTagsProvider()
+            .tags(request, ClientResponse.create(HttpStatus.OK).build(), null));
+
+        assertEquals("image", tags.get("uri"));
+        assertEquals("curiosity", tags.get("rover"));
+        assertEquals("mars.nasa.gov", tags.get("clientName"));
+        assertEquals("200", tags.get("status"));
+        assertEquals("SUCCESS", tags.get("outcome"));
+    }
+
+    @Test
+    public void whenUnknownRover_shouldTagAsOther() {
+        assertEquals("other", roverTags.roverTag("spirit"));
+
+        givenRovers("Curiosity", "Spirit");
+        assertEquals("other", roverTags.roverTag("rover-" + System.nanoTime()));
+        assertEquals("none", roverTags.roverTag(null));
+        assertEquals("spirit", roverTags.roverTag("SPIRIT"));
+    }
+
+    @Test
+    public void whenRoverCatalogChanges_shouldTagItsRoversUpToCap() {
+        givenRovers("Curiosity");
+        assertEquals("other", roverTags.roverTag("perseverance"));
+
+        givenRovers("Curiosity", "Perseverance");
+        assertEquals("perseverance", roverTags.roverTag("perseverance"));
+
+        String[] manyRovers = new String[20];
+        for(int i = 0; i < manyRovers.length; i++) {
+            manyRovers[i] = "rover" + (char) ('a' + i);
+        }
+        givenRovers(manyRovers);
+        assertEquals("roverj", roverTags.roverTag("roverj"));
+        assertEquals("other", roverTags.roverTag("roverk"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.zachsand.nasa.mars.rover.index;
+
+import com.github.zachsand.nasa.mars.rover.model.Manifest;
+import com.github.zachsand.nasa.mars.rover.model.ManifestPhoto;
+import com.github.zachsand.nasa.mars.rover.model.ManifestRange;
+import com.github.zachsand.nasa.mars.rover.model.PhotosManifest;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ManifestIndexTest {
+
+    private static final ManifestPhoto[] MANIFEST_PHOTOS = {
+        new ManifestPhoto(0, "2012-08-06", 3702, new String[] {"CHEMCAM", "FHAZ", "MARDI", "RHAZ"}),
+        new ManifestPhoto(1, "2012-08-07", 16, new String[] {"MAHLI", "MAST", "NAVCAM"}),
+        new ManifestPhoto(3, "2012-08-09", 338, new String[] {"FHAZ", "NAVCAM", "RHAZ"})
+    };
+
+    private static ManifestIndex createManifestIndex() {
+        return new ManifestIndex(new PhotosManifest(new Manifest("Curiosity", "2012-08-06", "2011-11-26", "active", 3,
+            "2012-08-09", 4056, MANIFEST_PHOTOS)));
+    }
+
+    @Test
+    public void whenLookupBySol_shouldReturnManifestPhoto() {
+        ManifestIndex manifestIndex = createManifestIndex();
+
+        assertEquals(MANIFEST_PHOTOS[0], manifestIndex.getBySol(0));
+        assertEquals(MANIFEST_PHOTOS[2], manifestIndex.getBySol(3));
+        assertNull(manifestIndex.getBySol(2));
+        assertNull(manifestIndex.getBySol(4));
+        assertNull(manifestIndex.getBySol(-1));
+    }
+
+    @Test
+    public void whenLookupByEarthDate_shouldReturnManifestPhoto() {
+        ManifestIndex manifestIndex = createManifestIndex();
+
+        assertEquals(MANIFEST_PHOTOS[1], manifestIndex.getByEpochDay(LocalDate.of(2012, 8, 7).toEpochDay()));
+        assertNull(manifestIndex.getByEpochDay(LocalDate.of(2012, 8, 8).toEpochDay()));
+        assertNull(manifestIndex.getByEpochDay(LocalDate.of(2012, 8, 5).toEpochDay()));
+        assertNull(manifestIndex.getByEpochDay(LocalDate.of(2020, 1, 1).toEpochDay()));
+    }
+
+    @Test
+    public void whenSummarizeSols_shouldAggregateFromPrefixSums() {
+        ManifestRange manifestRange = createManifestIndex().summarizeSols(1, 3);
+
+        assertEquals(2, manifestRange.getSolsWithPhotos());
+        assertEquals(354, manifestRange.getTotalPhotos());
+        assertEquals(Map.of("FHAZ", 1, "MAHLI", 1, "MAST", 1, "NAVCAM", 2, "RHAZ", 1), manifestRange.getCameraSols());
+    }
+
+    @Test
+    public void whenSummarizeEpochDays_shouldAggregateSolsWithinDates() {
+        ManifestIndex manifestIndex = createManifestIndex();
+
+        ManifestRange manifestRange = manifestIndex.summarizeEpochDays(LocalDate.of(2012, 8, 1).toEpochDay(),
+            LocalDate.of(2012, 8, 8).toEpochDay());
+        assertEquals(0, manifestRange.getStartSol());
+        assertEquals(1, manifestRange.getEndSol());
+        assertEquals(3718, manifestRange.getTotalPhotos());
+
+        assertEquals(0, manifestIndex.summarizeEpochDays(LocalDate.of(2012, 8, 8).toEpochDay(),
+            LocalDate.of(2012, 8, 8).toEpochDay()).getTotalPhotos());
+    }
+
+    @Test
+    public void whenFindSolsWithCameras_shouldCombineCameraBitSets() {
+        ManifestIndex manifestIndex = createManifestIndex();
+
+        assertEquals(BitSet.valueOf(new long[] {0b1001}), manifestIndex.findSolsWithCameras(List.of("FHAZ", "RHAZ"), true));
+        assertEquals(BitSet.valueOf(new long[] {0b1010}), manifestIndex.findSolsWithCameras(List.of("MAHLI", "NAVCAM"), false));
+        assertEquals(BitSet.valueOf(new long[] {0b0010}), manifestIndex.findSolsWithCameras(List.of("MAST", "UNKNOWN"), false));
+        assertTrue(manifestIndex.findSolsWithCameras(List.of("MAST", "UNKNOWN"), true).isEmpty());
+        assertTrue(manifestIndex.findSolsWithCameras(List.of("CHEMCAM", "NAVCAM"), true).isEmpty());
+    }
+
+    @Test
+    public void whenEarthDatesAgreeWithLandingDate_shouldHaveMarsClock() {
+        assertEquals(LocalDate.of(2012, 8, 9).toEpochDay(), createManifestIndex().getMarsClock().orElseThrow().toEpochDay(3));
+
+        ManifestPhoto[] manifestPhotos = MANIFEST_PHOTOS.clone();
+        manifestPhotos[2] = new ManifestPhoto(3, "2012-08-10", 338, new String[] {"FHAZ"});
+        ManifestIndex manifestIndex = new ManifestIndex(new PhotosManifest(new Manifest("Curiosity", "2012-08-06",
+            "2011-11-26", "active", 3, "2012-08-10", 4056, manifestPhotos)));
+        assertTrue(manifestIndex.getMarsClock().isEmpty());
+    }
+
+    @Test
+    public void whenIndexed_shouldUseLessHeapThanManifestPhotos() {
+        String[] cameraNames = {"CHEMCAM", "FHAZ", "MAHLI", "MARDI", "MAST", "NAVCAM", "RHAZ"};
+        LocalDate landingDate = LocalDate.of(2012, 8, 6);
+        ManifestPhoto[] manifestPhotos = new ManifestPhoto[3000];
+        for(int sol = 0; sol < manifestPhotos.length; sol++) {
+            /* Every string is its own instance, like when the manifest is deserialized */
+            List<String> cameras = new ArrayList<>();
+            for(int camera = 0; camera < cameraNames.length; camera++) {
+                if((sol + camera) % 3 != 0) {
+                    cameras.add(new String(cameraNames[camera]));
+                }
+            }
+            manifestPhotos[sol] = new ManifestPhoto(sol, landingDate.plusDays(sol * 1027L / 1000).toString(), sol % 400,
+                cameras.toArray(new String[0]));
+        }
+        PhotosManifest photosManifest = new PhotosManifest(new Manifest("Curiosity", "2012-08-06", "2011-11-26", "active",
+            manifestPhotos.length - 1, manifestPhotos[manifestPhotos.length - 1].getEarthDate(), 0, manifestPhotos));
+
+        ManifestIndex manifestIndex = new ManifestIndex(photosManifest);
+
+        long manifestPhotosSize = GraphLayout.parseInstance((Object) manifestPhotos).totalSize();
+        long manifestIndexSize = GraphLayout.parseInstance(manifestIndex).totalSize();
+        assertTrue(manifestIndexSize * 2 < manifestPhotosSize,
+            "Index of " + manifestIndexSize + " bytes, manifest photos of " + manifestPhotosSize + " bytes");
+        for(int sol = 0; sol < manifestPhotos.length; sol += 97) {
+            assertEquals(manifestPhotos[sol], manifestIndex.getBySol(sol));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.zachsand.nasa.mars.rover.index;
+
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import com.github.zachsand.nasa.mars.rover.model.PhotoRover;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhotoIdIndexTest {
+
+    private static Photo createPhoto(int id) {
+        return new Photo(id, id % 3000, new Camera(20, "NAVCAM", 5, "Navigation Camera"), "http://img.com/" + id + ".jpg",
+            "2015-06-03", new PhotoRover(5, "Curiosity", "2012-08-06", "2011-11-26", "active"));
+    }
+
+    @Test
+    public void whenPhotosIndexed_shouldFindEveryPhotoById() {
+        PhotoIdIndex photoIdIndex = new PhotoIdIndex();
+        /* Enough photos to resize the table a few times */
+        photoIdIndex.indexPhotos(new PhotoList(IntStream.rangeClosed(1, 20_000)
+            .mapToObj(PhotoIdIndexTest::createPhoto)
+            .toArray(Photo[]::new)));
+
+        assertEquals(20_000, photoIdIndex.size());
+        IntStream.rangeClosed(1, 20_000).forEach(id -> {
+            PhotoIndexEntry entry = photoIdIndex.get(id);
+            assertNotNull(entry, "Photo " + id + " should be indexed");
+            assertEquals("http://img.com/" + id + ".jpg", entry.getImgSrc());
+            assertEquals("curiosity", entry.getRoverName());
+            assertEquals("NAVCAM", entry.getCameraName());
+        });
+        assertNull(photoIdIndex.get(20_001));
+        assertNull(photoIdIndex.get(0));
+    }
+
+    @Test
+    public void whenPhotoIndexedTwice_shouldKeepOneEntry() {
+        PhotoIdIndex photoIdIndex = new PhotoIdIndex();
+        PhotoList photoList = new PhotoList(new Photo[] {createPhoto(42)});
+
+        photoIdIndex.indexPhotos(photoList);
+        photoIdIndex.indexPhotos(photoList);
+
+        assertEquals(1, photoIdIndex.size());
+    }
+
+    @Test
+    public void whenTurkishDefaultLocale_shouldStillLowerCaseRoverName() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            PhotoIdIndex photoIdIndex = new PhotoIdIndex();
+            photoIdIndex.indexPhotos(new PhotoList(new Photo[] {new Photo(7, 1, null, "http://img.com/7.jpg", "2004-01-05",
+                new PhotoRover(7, "SPIRIT", "2004-01-04", "2003-06-10", "complete"))}));
+
+            assertEquals("spirit", photoIdIndex.get(7).getRoverName());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
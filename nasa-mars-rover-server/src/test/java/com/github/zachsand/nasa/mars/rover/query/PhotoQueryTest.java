@@ -0,0 +1,73 @@
+package com.github.zachsand.nasa.mars.rover.query;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PhotoQueryTest {
+
+    private static MultiValueMap<String, String> queryParams(String... namesAndValues) {
+        MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        for(int i = 0; i < namesAndValues.length; i += 2) {
+            queryParams.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return queryParams;
+    }
+
+    @Test
+    public void whenEquivalentQueries_shouldBeEqual() {
+        PhotoQuery photoQuery = PhotoQuery.parse("Curiosity", queryParams("earth_date", "June 3, 2015", "camera", "navcam"));
+        PhotoQuery equivalentQuery = PhotoQuery.parse("curiosity", queryParams("earth_date", "2015-06-03", "camera", "NAVCAM"));
+
+        assertEquals(equivalentQuery, photoQuery);
+        assertEquals(equivalentQuery.hashCode(), photoQuery.hashCode());
+        assertEquals(PhotoQuery.forEarthDate("curiosity", LocalDate.of(2015, 6, 3)).withCamera("navcam"), photoQuery);
+        assertEquals("2015-06-03", photoQuery.getEarthDate());
+    }
+
+    @Test
+    public void whenAllPhotosOfDay_shouldDropPagesAndSol() {
+        PhotoQuery photoQuery = PhotoQuery.parse("curiosity",
+            queryParams("earth_date", "2015-06-03", "sol", "1000", "page", "2", "per_page", "10", "fields", "id"));
+
+        assertEquals(Integer.valueOf(2), photoQuery.getPage());
+        assertEquals(PhotoQuery.forEarthDate("curiosity", LocalDate.of(2015, 6, 3)), photoQuery.allPhotosOfDay());
+        assertEquals("sol_1000", PhotoQuery.parse("curiosity", queryParams("sol", "1000", "page", "2")).allPhotosOfDay().getDateName());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "earth_date, yesterday",
+        "earth_date, 2015-02-30",
+        "sol, -1",
+        "sol, 1e3",
+        "page, 0",
+        "page, ''",
+        "per_page, 99999999999"
+    })
+    public void whenInvalidQueryParam_shouldThrowStacklessBadRequest(String name, String value) {
+        InvalidQueryException exception = assertThrows(InvalidQueryException.class,
+            () -> PhotoQuery.parse("curiosity", queryParams(name, value)));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @Test
+    public void whenParseCountOfOtherParam_shouldDefaultOrThrowStacklessBadRequest() {
+        assertEquals(25, PhotoQuery.parseCount(null, 25, "Invalid tile"));
+        assertEquals(120, PhotoQuery.parseCount("120", 25, "Invalid tile"));
+
+        InvalidQueryException exception = assertThrows(InvalidQueryException.class,
+            () -> PhotoQuery.parseCount("-1", 25, "Invalid tile"));
+        assertEquals("Invalid tile", exception.getReason());
+        assertEquals(0, exception.getStackTrace().length);
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.zachsand.nasa.mars.rover.router;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.index.ManifestIndex;
+import com.github.zachsand.nasa.mars.rover.model.Manifest;
+import com.github.zachsand.nasa.mars.rover.model.ManifestPhoto;
+import com.github.zachsand.nasa.mars.rover.model.PhotosManifest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+public class HttpCachingTest {
+
+    @Test
+    public void whenSameManifestRequestedAgain_shouldNotSerializeAgain() {
+        /* Both the validators and the response body are written with the spy */
+        ObjectMapper objectMapper = spy(new ObjectMapper());
+        HttpCaching httpCaching = new HttpCaching(objectMapper);
+        ManifestIndex manifestIndex = new ManifestIndex(new PhotosManifest(new Manifest("Curiosity", "2012-08-06",
+            "2011-11-26", "active", 0, "2012-08-06", 3702, new ManifestPhoto[] {
+                new ManifestPhoto(0, "2012-08-06", 3702, new String[] {"FHAZ"})
+            })));
+
+        /* Like the manifest endpoint, a new ManifestPhoto is rebuilt from the index for every request */
+        WebTestClient client = WebTestClient
+            .bindToRouterFunction(route(GET("/api/rovers/curiosity/manifest"),
+                req -> httpCaching.json(req, manifestIndex.versioned(manifestIndex.getBySol(0)), HttpCaching.PAST_DATE)))
+            .handlerStrategies(HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .build())
+            .build();
+        clearInvocations(objectMapper);
+
+        HttpHeaders headers = client.get()
+            .uri("/api/rovers/curiosity/manifest?sol=0")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(ManifestPhoto.class)
+            .isEqualTo(manifestIndex.getBySol(0))
+            .returnResult()
+            .getResponseHeaders();
+        assertNotNull(headers.getETag());
+        assertNotEquals(-1, headers.getLastModified());
+        clearInvocations(objectMapper);
+
+        client.get()
+            .uri("/api/rovers/curiosity/manifest?sol=0")
+            .ifNoneMatch(headers.getETag())
+            .exchange()
+            .expectStatus()
+            .isNotModified()
+            .expectHeader()
+            .valueEquals(HttpHeaders.ETAG, headers.getETag());
+
+        client.get()
+            .uri("/api/rovers/curiosity/manifest?sol=0")
+            .ifModifiedSince(ZonedDateTime.ofInstant(Instant.ofEpochMilli(headers.getLastModified()), ZoneOffset.UTC))
+            .exchange()
+            .expectStatus()
+            .isNotModified();
+
+        verifyNoInteractions(objectMapper);
+    }
+}
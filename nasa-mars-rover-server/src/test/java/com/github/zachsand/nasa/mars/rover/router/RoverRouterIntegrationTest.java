@@ -1,18 +1,47 @@
 package com.github.zachsand.nasa.mars.rover.router;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.zachsand.nasa.mars.rover.NasaMarsRoverApplication;
 import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
 import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import com.github.zachsand.nasa.mars.rover.service.PhotoDownloadService;
 import com.github.zachsand.nasa.mars.rover.service.RoverManifestService;
+import com.github.zachsand.nasa.mars.rover.util.MarsClock;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.test.web.reactive.server.WebTestClient;
-import org.springframework.util.LinkedMultiValueMap;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = NasaMarsRoverApplication.class)
 public class RoverRouterIntegrationTest {
@@ -23,16 +52,25 @@ public class RoverRouterIntegrationTest {
     @MockBean
     private RoverManifestService roverManifestService;
 
+    @MockBean
+    private PhotoDownloadService photoDownloadService;
+
     @Autowired
     private RoverRouter roverRouter;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Test
     public void whenGetRovers_shouldReturnRovers() {
+        /* The rovers are written with the application's ObjectMapper, so they are read with it too */
         WebTestClient client = WebTestClient
             .bindToRouterFunction(roverRouter.getRovers())
+            .configureClient()
+            .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper)))
             .build();
 
-        Rover rover = new Rover(1, "name", "01/01/2000", "01/01/2000", "active", 100, "01/01/2000", 1000, new Camera[] {new Camera()});
+        Rover rover = new Rover(1, "name", "01/01/2000", "01/01/2000", "active", 100, "01/01/2000", 1000, new Camera[] {new Camera(0, null, 0, null)});
         RoverList roverList = new RoverList(new Rover[] {
             rover
         });
@@ -56,8 +94,8 @@ public class RoverRouterIntegrationTest {
 
         ManifestPhoto manifestPhoto = new ManifestPhoto(0, "02/01/18", 1000, new String[] {"CAM"});
 
-        given(roverManifestService.getRoverPhotoManifestByDate("curiosity", new LinkedMultiValueMap<>()))
-                .willReturn(Mono.just(manifestPhoto));
+        given(roverManifestService.getRoverPhotoManifestByDate(PhotoQuery.forRover("curiosity")))
+                .willReturn(Mono.just(new Versioned<>(manifestPhoto, "1", Instant.EPOCH)));
 
         client.get()
             .uri("/api/rovers/curiosity/manifest")
@@ -80,7 +118,7 @@ public class RoverRouterIntegrationTest {
             )
         });
 
-        given(nasaRoverClient.getRoverPhotos("curiosity", new LinkedMultiValueMap<>()))
+        given(nasaRoverClient.getRoverPhotos(PhotoQuery.forRover("curiosity")))
                 .willReturn(Mono.just(photoList));
 
         client.get()
@@ -91,4 +129,368 @@ public class RoverRouterIntegrationTest {
                 .expectBody(PhotoList.class)
                 .isEqualTo(photoList);
     }
+
+    @Test
+    public void whenGetRoverPhotosBySol_shouldQueryEarthDateOfSol() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.getRoverPhotos())
+                .build();
+
+        PhotoList photoList = new PhotoList(new Photo[] {
+            new Photo(1, 1000, new Camera(1, "CAM", 5, "CAMERA"), "http://img.com", "2015-05-30", null)
+        });
+
+        given(roverManifestService.findMarsClock("curiosity"))
+                .willReturn(MarsClock.forLandingDate("2012-08-06"));
+        given(nasaRoverClient.getRoverPhotos(PhotoQuery.forEarthDate("curiosity", LocalDate.of(2015, 5, 30))))
+                .willReturn(Mono.just(photoList));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photos?sol=1000")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(PhotoList.class)
+                .isEqualTo(photoList);
+    }
+
+    @Test
+    public void whenGetRoverMarsTime_shouldReturnSolAndEarthDate() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.getRoverMarsTime())
+                .build();
+
+        MarsTime marsTime = new MarsTime(36, "2012-09-11");
+
+        given(roverManifestService.getMarsTime(PhotoQuery.forEarthDate("curiosity", LocalDate.of(2012, 9, 12))))
+                .willReturn(Mono.just(new Versioned<>(marsTime, "1", Instant.EPOCH)));
+
+        client.get()
+                .uri("/api/rovers/curiosity/time?earth_date=2012-09-12")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePublic())
+                .expectBody(MarsTime.class)
+                .isEqualTo(marsTime);
+    }
+
+    @Test
+    public void whenGetRoverPhotosWithETag_shouldReturnNotModified() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.getRoverPhotos())
+                .build();
+
+        PhotoList photoList = new PhotoList(new Photo[] {
+            new Photo(1, 1, new Camera(1, "CAM", 5, "CAMERA"), "http://img.com", "2021-01-01", null)
+        });
+
+        given(nasaRoverClient.getRoverPhotos(PhotoQuery.forRover("curiosity")))
+                .willReturn(Mono.just(photoList));
+
+        String eTag = client.get()
+                .uri("/api/rovers/curiosity/photos")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePublic())
+                .expectBody(PhotoList.class)
+                .isEqualTo(photoList)
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        client.get()
+                .uri("/api/rovers/curiosity/photos")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody()
+                .isEmpty();
+    }
+
+    @Test
+    public void whenDownloadRoverPhotoWithETag_shouldReturnNotModifiedWithoutLookup() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.downloadRoverPhoto())
+                .build();
+
+        client.get()
+                .uri("/api/rovers/Curiosity/photo/42?width=100")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"curiosity-42-100x-\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic());
+
+        verifyNoInteractions(photoDownloadService);
+    }
+
+    @Test
+    public void whenDownloadStoredRoverPhotoRange_shouldReturnPartialContent(@TempDir Path directory) throws IOException {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.downloadRoverPhoto())
+                .build();
+
+        byte[] imageData = new byte[100];
+        for(int i = 0; i < imageData.length; i++) {
+            imageData[i] = (byte) i;
+        }
+        Path photo = Files.write(directory.resolve("42.jpg"), imageData);
+        given(photoDownloadService.findStoredPhoto("curiosity", "42")).willReturn(Mono.just(photo));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photo/42")
+                .header(HttpHeaders.RANGE, "bytes=10-19")
+                .header(HttpHeaders.IF_RANGE, "\"curiosity-42\"")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PARTIAL_CONTENT)
+                .expectHeader()
+                .valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 10-19/100")
+                .expectBody(byte[].class)
+                .isEqualTo(Arrays.copyOfRange(imageData, 10, 20));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photo/42")
+                .header(HttpHeaders.RANGE, "bytes=0-1,50-51")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PARTIAL_CONTENT)
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.parseMediaType("multipart/byteranges"));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photo/42")
+                .header(HttpHeaders.RANGE, "bytes=200-300")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    @Test
+    public void whenRelayedPhotoRange_shouldOnlyCachePhotoBytes() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.downloadRoverPhoto())
+                .build();
+
+        given(photoDownloadService.findStoredPhoto("curiosity", "42")).willReturn(Mono.empty());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes 0-1/4");
+        given(photoDownloadService.relayPhotoRange(PhotoQuery.forRover("curiosity"), "42", "bytes=0-1"))
+                .willReturn(Mono.just(ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+                    .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(new byte[] {1, 2})))));
+        given(photoDownloadService.relayPhotoRange(PhotoQuery.forRover("curiosity"), "42", "bytes=10-20"))
+                .willReturn(Mono.just(ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .body(Flux.empty())));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photo/42")
+                .header(HttpHeaders.RANGE, "bytes=0-1")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PARTIAL_CONTENT)
+                .expectHeader()
+                .valueEquals(HttpHeaders.CONTENT_RANGE, "bytes 0-1/4")
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"curiosity-42\"")
+                .expectHeader()
+                .cacheControl(HttpCaching.IMMUTABLE);
+
+        client.get()
+                .uri("/api/rovers/curiosity/photo/42")
+                .header(HttpHeaders.RANGE, "bytes=10-20")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .expectHeader()
+                .doesNotExist(HttpHeaders.CACHE_CONTROL);
+    }
+
+    @Test
+    public void whenIfRangeDoesNotMatch_shouldReturnWholePhoto() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.downloadRoverPhoto())
+                .build();
+
+        byte[] imageData = {1, 2, 3, 4};
+        given(photoDownloadService.streamPhoto(PhotoQuery.forRover("curiosity"), "42"))
+                .willReturn(Mono.just(new PhotoImageStream("curiosity_42.jpg", imageData.length,
+                    Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(imageData)))));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photo/42")
+                .header(HttpHeaders.RANGE, "bytes=0-1")
+                .header(HttpHeaders.IF_RANGE, "\"curiosity-41\"")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .expectBody(byte[].class)
+                .isEqualTo(imageData);
+    }
+
+    @Test
+    public void whenPhotosRelay_shouldForwardResponseBody() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.getRoverPhotos())
+                .build();
+
+        String upstreamBody = "{\"photos\":[{\"id\":1,\"img_src\":\"http://img.com\"}]}";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        given(nasaRoverClient.isPhotosRelay()).willReturn(true);
+        given(nasaRoverClient.relayRoverPhotos(PhotoQuery.forRover("curiosity")))
+                .willReturn(Mono.just(new ResponseEntity<>(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                    upstreamBody.getBytes(StandardCharsets.UTF_8))), headers, HttpStatus.OK)));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photos")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody(String.class)
+                .isEqualTo(upstreamBody);
+    }
+
+    @Test
+    public void whenPhotosRelayOfPastDateWithETag_shouldReturnNotModifiedWithoutRelaying() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.getRoverPhotos())
+                .build();
+
+        PhotoQuery photoQuery = PhotoQuery.forEarthDate("curiosity", LocalDate.of(2012, 9, 11));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        given(nasaRoverClient.isPhotosRelay()).willReturn(true);
+        given(roverManifestService.getRoverPhotoManifestByDate(photoQuery))
+                .willReturn(Mono.just(new Versioned<>(new ManifestPhoto(36, "2012-09-11", 20, new String[] {"NAVCAM"}),
+                    "1", Instant.EPOCH)));
+        given(nasaRoverClient.relayRoverPhotos(photoQuery))
+                .willReturn(Mono.fromCallable(() -> new ResponseEntity<>(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                    "{\"photos\":[]}".getBytes(StandardCharsets.UTF_8))), headers, HttpStatus.OK)));
+
+        String eTag = client.get()
+                .uri("/api/rovers/curiosity/photos?earth_date=2012-09-11")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePublic())
+                .expectBody(String.class)
+                .isEqualTo("{\"photos\":[]}")
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        client.get()
+                .uri("/api/rovers/curiosity/photos?earth_date=2012-09-11")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, eTag)
+                .expectBody()
+                .isEmpty();
+        verify(nasaRoverClient, times(1)).relayRoverPhotos(photoQuery);
+    }
+
+    @Test
+    public void whenGetRoverPhotosWithFields_shouldProjectPhotos() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.getRoverPhotos())
+                .build();
+
+        PhotoList photoList = new PhotoList(new Photo[] {
+            new Photo(1, 5, new Camera(2, "NAVCAM", 5, "Navigation Camera"), "http://img.com", "2015-06-03", null)
+        });
+
+        given(nasaRoverClient.getRoverPhotos(PhotoQuery.forRover("curiosity"))).willReturn(Mono.just(photoList));
+
+        String eTag = client.get()
+                .uri("/api/rovers/curiosity/photos?fields=id,camera.name")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .cacheControl(HttpCaching.PAST_DATE)
+                .expectBody(String.class)
+                .isEqualTo("{\"photos\":[{\"id\":1,\"camera\":{\"name\":\"NAVCAM\"}}]}")
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        /* Validated by the cached photos and the fields, in any order, without going to the NASA Mars Rover API */
+        client.get()
+                .uri("/api/rovers/curiosity/photos?fields=camera.name,id")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+        verify(nasaRoverClient, never()).relayRoverPhotos(any());
+    }
+
+    @Test
+    public void whenStreamRoverPhotos_shouldReturnNewlineDelimitedPhotos() {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.streamRoverPhotos())
+                .build();
+
+        Photo photo = new Photo(1, 1, new Camera(1, "CAM", 5, "CAMERA"), "http://img.com", "01/01/2021", null);
+
+        given(nasaRoverClient.streamRoverPhotos(PhotoQuery.forRover("curiosity")))
+                .willReturn(Flux.just(photo, photo));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photos/stream")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Photo.class)
+                .hasSize(2)
+                .contains(photo);
+    }
+
+    @Test
+    public void whenMosaicPhotoMissing_shouldSayHowManyAndCacheBriefly() throws IOException {
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(roverRouter.getRoverPhotoMosaic())
+                .build();
+
+        Photo[] photos = {
+            new Photo(1, 1000, new Camera(1, "NAVCAM", 5, "NAVCAM"), "http://img.com/1", "2015-06-03", null),
+            new Photo(2, 1000, new Camera(1, "NAVCAM", 5, "NAVCAM"), "http://img.com/2", "2015-06-03", null)
+        };
+        BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream imageBytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", imageBytes);
+
+        given(nasaRoverClient.getRoverPhotos(any())).willReturn(Mono.just(new PhotoList(photos)));
+        given(photoDownloadService.downloadPhoto("curiosity", photos[0])).willReturn(Mono.just(imageBytes.toByteArray()));
+        given(photoDownloadService.downloadPhoto("curiosity", photos[1])).willReturn(Mono.error(new IllegalStateException()));
+
+        client.get()
+                .uri("/api/rovers/curiosity/photos/mosaic?earth_date=2015-06-03&tile=16")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(RoverRouter.MISSING_PHOTOS_HEADER, "1")
+                .expectHeader()
+                .cacheControl(HttpCaching.RECENT);
+    }
 }
@@ -0,0 +1,190 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.config.DownloadJobConfiguration;
+import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class DownloadJobServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final NasaRoverClient nasaRoverClient = mock(NasaRoverClient.class);
+
+    private final PhotoDownloadService photoDownloadService = mock(PhotoDownloadService.class);
+
+    private DownloadJobService createDownloadJobService() throws Exception {
+        return createDownloadJobService(Duration.ofDays(1), 10);
+    }
+
+    private DownloadJobService createDownloadJobService(Duration retention, int maxFinishedJobs) throws Exception {
+        DownloadJobService downloadJobService = new DownloadJobService(new DownloadJobConfiguration(tempDir.toString(), 2, 10,
+            retention, maxFinishedJobs), nasaRoverClient, photoDownloadService, new ObjectMapper());
+        downloadJobService.start();
+        return downloadJobService;
+    }
+
+    private static Mono<PhotoImageStream> createImageStream(byte... imageBytes) {
+        return Mono.just(new PhotoImageStream("photo.jpg", imageBytes.length,
+            Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(imageBytes))));
+    }
+
+    private Photo givenSolPhoto(int sol, String camera) {
+        Photo photo = new Photo(sol * 10, sol, new Camera(1, camera, 5, camera), "http://img.com/" + sol, "2015-06-03", null);
+        given(nasaRoverClient.getRoverPhotos(PhotoQuery.forSol("curiosity", sol))).willReturn(Mono.just(new PhotoList(new Photo[] {photo})));
+        return photo;
+    }
+
+    private static DownloadJob awaitJob(DownloadJobService downloadJobService, String jobId, Predicate<DownloadJob> condition)
+        throws InterruptedException {
+        /* Long enough for the retries of a failing photo */
+        for(int attempt = 0; attempt < 200; attempt++) {
+            DownloadJob downloadJob = downloadJobService.getJob(jobId).block();
+            if(condition.test(downloadJob)) {
+                return downloadJob;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Job " + jobId + " did not get there in time");
+    }
+
+    private static void awaitJobForgotten(DownloadJobService downloadJobService, String jobId) throws InterruptedException {
+        for(int attempt = 0; attempt < 200; attempt++) {
+            if(downloadJobService.getJob(jobId).onErrorResume(ResponseStatusException.class, e -> Mono.empty()).block() == null) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("Job " + jobId + " was not forgotten in time");
+    }
+
+    @Test
+    public void whenJobSubmitted_shouldDownloadEverySol() throws Exception {
+        Photo navcam = givenSolPhoto(1, "NAVCAM");
+        Photo mast = givenSolPhoto(2, "MAST");
+        given(photoDownloadService.streamPhoto("curiosity", navcam)).willReturn(createImageStream((byte) 1));
+        DownloadJobService downloadJobService = createDownloadJobService();
+
+        DownloadJob submitted = downloadJobService.submitJob(new DownloadJobRequest("curiosity", 1, 2, null, null,
+            new String[] {"navcam", "FHAZ"})).block();
+        DownloadJob completed = awaitJob(downloadJobService, submitted.getId(),
+            downloadJob -> downloadJob.getStatus() == DownloadJobStatus.COMPLETED);
+
+        assertEquals(2, completed.getCompletedDays());
+        assertEquals(1, completed.getDownloadedPhotos());
+        assertArrayEquals(new byte[] {1}, Files.readAllBytes(tempDir.resolve(submitted.getId()).resolve("sol_1").resolve("curiosity_10.jpg")));
+        verify(photoDownloadService, never()).streamPhoto("curiosity", mast);
+        assertNotNull(downloadJobService.streamJobResults(submitted.getId()).block());
+        downloadJobService.stop();
+    }
+
+    @Test
+    public void whenRestarted_shouldResumeFromFirstUnfinishedSol() throws Exception {
+        Photo first = givenSolPhoto(1, "NAVCAM");
+        Photo second = givenSolPhoto(2, "NAVCAM");
+        given(photoDownloadService.streamPhoto("curiosity", first)).willReturn(createImageStream((byte) 1));
+        given(photoDownloadService.streamPhoto("curiosity", second)).willReturn(Mono.never());
+        DownloadJobService downloadJobService = createDownloadJobService();
+
+        String jobId = downloadJobService.submitJob(new DownloadJobRequest("curiosity", 1, 2, null, null, null)).block().getId();
+        awaitJob(downloadJobService, jobId, downloadJob -> downloadJob.getCompletedDays() == 1);
+        downloadJobService.stop();
+
+        given(photoDownloadService.streamPhoto("curiosity", second)).willReturn(createImageStream((byte) 2));
+        DownloadJobService restartedService = createDownloadJobService();
+        DownloadJob completed = awaitJob(restartedService, jobId,
+            downloadJob -> downloadJob.getStatus() == DownloadJobStatus.COMPLETED);
+
+        assertEquals(2, completed.getDownloadedPhotos());
+        verify(nasaRoverClient, times(1)).getRoverPhotos(PhotoQuery.forSol("curiosity", 1));
+        restartedService.stop();
+    }
+
+    @Test
+    public void whenPhotoKeepsFailing_shouldSkipAndCountIt() throws Exception {
+        Photo failing = givenSolPhoto(1, "NAVCAM");
+        Photo second = givenSolPhoto(2, "NAVCAM");
+        given(photoDownloadService.streamPhoto("curiosity", failing))
+            .willReturn(Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY)));
+        given(photoDownloadService.streamPhoto("curiosity", second)).willReturn(createImageStream((byte) 2));
+        DownloadJobService downloadJobService = createDownloadJobService();
+
+        String jobId = downloadJobService.submitJob(new DownloadJobRequest("curiosity", 1, 2, null, null, null)).block().getId();
+        DownloadJob completed = awaitJob(downloadJobService, jobId,
+            downloadJob -> downloadJob.getStatus() != DownloadJobStatus.QUEUED && downloadJob.getStatus() != DownloadJobStatus.RUNNING);
+
+        assertEquals(DownloadJobStatus.COMPLETED, completed.getStatus());
+        assertEquals(2, completed.getCompletedDays());
+        assertEquals(1, completed.getDownloadedPhotos());
+        assertEquals(1, completed.getFailedPhotos());
+        assertFalse(Files.exists(tempDir.resolve(jobId).resolve("sol_1").resolve("curiosity_10.jpg")));
+        downloadJobService.stop();
+
+        DownloadJobService restartedService = createDownloadJobService();
+        assertEquals(1, restartedService.getJob(jobId).block().getFailedPhotos());
+        restartedService.stop();
+    }
+
+    @Test
+    public void whenJobNotCompleted_shouldRejectResults() throws Exception {
+        given(nasaRoverClient.getRoverPhotos(any())).willReturn(Mono.never());
+        DownloadJobService downloadJobService = createDownloadJobService();
+
+        String jobId = downloadJobService.submitJob(new DownloadJobRequest("curiosity", 1, 2, null, null, null)).block().getId();
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+            () -> downloadJobService.streamJobResults(jobId).block(Duration.ofSeconds(5)));
+        assertEquals(409, exception.getStatus().value());
+        assertThrows(ResponseStatusException.class, () -> downloadJobService.submitJob(
+            new DownloadJobRequest("curiosity", 1, 20, null, null, null)).block());
+        downloadJobService.stop();
+    }
+
+    @Test
+    public void whenMoreFinishedJobsThanKept_shouldForgetOldestAndDeleteItsPhotos() throws Exception {
+        given(photoDownloadService.streamPhoto("curiosity", givenSolPhoto(1, "NAVCAM"))).willReturn(createImageStream((byte) 1));
+        given(photoDownloadService.streamPhoto("curiosity", givenSolPhoto(2, "NAVCAM"))).willReturn(createImageStream((byte) 2));
+        DownloadJobService downloadJobService = createDownloadJobService(Duration.ofDays(1), 1);
+
+        String oldestJobId = downloadJobService.submitJob(new DownloadJobRequest("curiosity", 1, 1, null, null, null)).block().getId();
+        awaitJob(downloadJobService, oldestJobId, downloadJob -> downloadJob.getStatus() == DownloadJobStatus.COMPLETED);
+        assertTrue(Files.exists(tempDir.resolve(oldestJobId)));
+        String jobId = downloadJobService.submitJob(new DownloadJobRequest("curiosity", 2, 2, null, null, null)).block().getId();
+        awaitJob(downloadJobService, jobId, downloadJob -> downloadJob.getStatus() == DownloadJobStatus.COMPLETED);
+
+        awaitJobForgotten(downloadJobService, oldestJobId);
+        assertFalse(Files.exists(tempDir.resolve(oldestJobId)));
+        downloadJobService.stop();
+
+        /* Not brought back by replaying the log, and once past the retention the remaining job is forgotten too */
+        DownloadJobService restartedService = createDownloadJobService(Duration.ofDays(1), 1);
+        assertThrows(ResponseStatusException.class, () -> restartedService.getJob(oldestJobId).block());
+        assertEquals(1, restartedService.getJob(jobId).block().getDownloadedPhotos());
+        restartedService.stop();
+
+        DownloadJobService expiredService = createDownloadJobService(Duration.ZERO, 1);
+        assertThrows(ResponseStatusException.class, () -> expiredService.getJob(jobId).block());
+        assertFalse(Files.exists(tempDir.resolve(jobId)));
+        assertFalse(Files.readString(tempDir.resolve("jobs.log")).contains(jobId));
+        expiredService.stop();
+    }
+}
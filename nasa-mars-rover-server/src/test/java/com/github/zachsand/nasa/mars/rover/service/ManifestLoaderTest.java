@@ -0,0 +1,128 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.index.ManifestIndex;
+import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class ManifestLoaderTest {
+
+    private final NasaRoverClient nasaRoverClient = mock(NasaRoverClient.class);
+
+    private final ManifestLoader manifestLoader = new ManifestLoader(nasaRoverClient,
+        new RoverCatalog(nasaRoverClient, new ObjectMapper()));
+
+    /* The last known sol, after enough sols that the whole manifest costs more than a few sols of photos */
+    private static final int LAST_SOL = 200;
+
+    private static final int KNOWN_PHOTOS = LAST_SOL * 20 + 10;
+
+    private static ManifestIndex createManifestIndex() {
+        return new ManifestIndex(createManifest(20));
+    }
+
+    private static PhotosManifest createManifest(int solZeroPhotos) {
+        ManifestPhoto[] photos = new ManifestPhoto[LAST_SOL + 1];
+        for(int sol = 0; sol < LAST_SOL; sol++) {
+            photos[sol] = new ManifestPhoto(sol, earthDate(sol), sol == 0 ? solZeroPhotos : 20, new String[] {"FHAZ"});
+        }
+        photos[LAST_SOL] = new ManifestPhoto(LAST_SOL, earthDate(LAST_SOL), 10, new String[] {"NAVCAM"});
+        return new PhotosManifest(new Manifest("Curiosity", "2012-08-06", "2011-11-26", "active", LAST_SOL,
+            earthDate(LAST_SOL), KNOWN_PHOTOS - 20 + solZeroPhotos, photos));
+    }
+
+    private static String earthDate(int sol) {
+        return LocalDate.of(2012, 8, 6).plusDays(sol * 1027L / 1000).toString();
+    }
+
+    private void givenRover(int maxSol, int totalPhotos) {
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(new RoverList(new Rover[] {
+            new Rover(5, "Curiosity", "2012-08-06", "2011-11-26", "active", maxSol, earthDate(maxSol), totalPhotos, new Camera[0])
+        })));
+    }
+
+    private void givenSolPhotos(int sol, String camera, int count) {
+        Photo[] photos = new Photo[count];
+        for(int i = 0; i < count; i++) {
+            photos[i] = new Photo(sol * 1000 + i, sol, new Camera(1, camera, 5, camera), "http://img.com/" + i, earthDate(sol), null);
+        }
+        given(nasaRoverClient.getUncachedRoverPhotos(PhotoQuery.forSol("curiosity", sol))).willReturn(Mono.just(new PhotoList(photos)));
+    }
+
+    @Test
+    public void whenRoverUnchanged_shouldKeepCachedManifest() {
+        ManifestIndex manifestIndex = createManifestIndex();
+        givenRover(LAST_SOL, KNOWN_PHOTOS);
+
+        assertSame(manifestIndex, manifestLoader.asyncReload("curiosity", manifestIndex, ForkJoinPool.commonPool()).join());
+        verify(nasaRoverClient, never()).getRoverManifest(any());
+        verify(nasaRoverClient, never()).getUncachedRoverPhotos(any());
+    }
+
+    @Test
+    public void whenLastSolGrew_shouldRetrieveLastSolPastPhotoCache() {
+        givenRover(LAST_SOL, KNOWN_PHOTOS + 5);
+        givenSolPhotos(LAST_SOL, "NAVCAM", 15);
+
+        ManifestIndex manifestIndex = manifestLoader.asyncReload("curiosity", createManifestIndex(), ForkJoinPool.commonPool()).join();
+
+        verify(nasaRoverClient, never()).getRoverManifest(any());
+        verify(nasaRoverClient, never()).getRoverPhotos(any());
+        assertEquals(KNOWN_PHOTOS + 5, manifestIndex.getManifest().getTotalPhotos());
+        assertEquals(15, manifestIndex.getBySol(LAST_SOL).getTotalPhotos());
+        assertEquals(20, manifestIndex.getBySol(0).getTotalPhotos());
+    }
+
+    @Test
+    public void whenNewSols_shouldMergeOnlyNewSols() {
+        givenRover(LAST_SOL + 2, KNOWN_PHOTOS + 15);
+        givenSolPhotos(LAST_SOL, "NAVCAM", 12);
+        givenSolPhotos(LAST_SOL + 1, "MAST", 0);
+        givenSolPhotos(LAST_SOL + 2, "MAHLI", 13);
+
+        ManifestIndex manifestIndex = manifestLoader.asyncReload("curiosity", createManifestIndex(), ForkJoinPool.commonPool()).join();
+
+        verify(nasaRoverClient, never()).getRoverManifest(any());
+        assertEquals(LAST_SOL + 2, manifestIndex.getManifest().getMaxSol());
+        assertEquals(20, manifestIndex.getBySol(0).getTotalPhotos());
+        assertEquals(12, manifestIndex.getBySol(LAST_SOL).getTotalPhotos());
+        assertNull(manifestIndex.getBySol(LAST_SOL + 1));
+        assertArrayEquals(new String[] {"MAHLI"}, manifestIndex.getBySol(LAST_SOL + 2).getCameras());
+    }
+
+    @Test
+    public void whenNewPhotosOutweighManifest_shouldLoadWholeManifestWithoutSols() {
+        givenRover(LAST_SOL + 1, KNOWN_PHOTOS + 1000);
+        given(nasaRoverClient.getRoverManifest("curiosity")).willReturn(Mono.just(createManifest(20)));
+
+        manifestLoader.asyncReload("curiosity", createManifestIndex(), ForkJoinPool.commonPool()).join();
+
+        verify(nasaRoverClient).getRoverManifest("curiosity");
+        verify(nasaRoverClient, never()).getUncachedRoverPhotos(any());
+    }
+
+    @Test
+    public void whenOlderSolsChanged_shouldLoadWholeManifest() {
+        givenRover(LAST_SOL + 1, KNOWN_PHOTOS + 30);
+        givenSolPhotos(LAST_SOL, "NAVCAM", 10);
+        givenSolPhotos(LAST_SOL + 1, "MAST", 5);
+        given(nasaRoverClient.getRoverManifest("curiosity"))
+            .willReturn(Mono.just(createManifest(85)));
+
+        ManifestIndex manifestIndex = manifestLoader.asyncReload("curiosity", createManifestIndex(), ForkJoinPool.commonPool()).join();
+
+        verify(nasaRoverClient).getRoverManifest("curiosity");
+        assertEquals(85, manifestIndex.getBySol(0).getTotalPhotos());
+    }
+}
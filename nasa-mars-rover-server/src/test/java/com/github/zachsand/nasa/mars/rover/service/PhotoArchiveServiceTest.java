@@ -0,0 +1,108 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoArchiveStream;
+import com.github.zachsand.nasa.mars.rover.model.PhotoImageStream;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class PhotoArchiveServiceTest {
+
+    private final NasaRoverClient nasaRoverClient = mock(NasaRoverClient.class);
+
+    private final PhotoDownloadService photoDownloadService = mock(PhotoDownloadService.class);
+
+    private final PhotoArchiveService photoArchiveService = new PhotoArchiveService(nasaRoverClient, photoDownloadService);
+
+    private static Photo createPhoto(int id) {
+        return new Photo(id, 1000, new Camera(1, "NAVCAM", 5, "Navigation Camera"), "http://img.com/" + id, "2015-06-03", null);
+    }
+
+    private static Mono<PhotoImageStream> createImageStream(Photo photo, Flux<DataBuffer> imageData) {
+        return Mono.just(new PhotoImageStream("curiosity_" + photo.getId() + ".jpg", -1, imageData));
+    }
+
+    private static DataBuffer wrap(byte... bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+
+    @Test
+    public void whenStreamPhotoArchive_shouldZipEveryDownloadedPhotoAndListMissingOnes() throws IOException {
+        Photo[] photos = {createPhoto(1), createPhoto(2), createPhoto(3), createPhoto(4)};
+        given(nasaRoverClient.getRoverPhotos(PhotoQuery.forEarthDate("curiosity", LocalDate.of(2015, 6, 3))))
+            .willReturn(Mono.just(new PhotoList(photos)));
+        given(photoDownloadService.streamPhoto("curiosity", photos[0]))
+            .willReturn(createImageStream(photos[0], Flux.just(wrap(new byte[] {1}), wrap(new byte[] {1}))));
+        given(photoDownloadService.streamPhoto("curiosity", photos[1])).willReturn(Mono.error(new IllegalStateException()));
+        given(photoDownloadService.streamPhoto("curiosity", photos[2]))
+            .willReturn(createImageStream(photos[2], Flux.just(wrap(new byte[] {3, 3, 3}))));
+        given(photoDownloadService.streamPhoto("curiosity", photos[3]))
+            .willReturn(createImageStream(photos[3], Flux.just(wrap(new byte[] {4})).concatWith(Flux.error(new IllegalStateException()))));
+
+        MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        queryParams.add("earth_date", "2015-06-03");
+        queryParams.add("page", "2");
+        PhotoArchiveStream photoArchiveStream = photoArchiveService.streamPhotoArchive(PhotoQuery.parse("Curiosity", queryParams)).block();
+
+        assertEquals("curiosity_2015-06-03.zip", photoArchiveStream.getArchiveName());
+        byte[] archive = DataBufferUtils.join(photoArchiveStream.getArchiveData())
+            .map(dataBuffer -> {
+                byte[] bytes = new byte[dataBuffer.readableByteCount()];
+                dataBuffer.read(bytes);
+                return bytes;
+            })
+            .block();
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try(ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry zipEntry;
+            while((zipEntry = zipInputStream.getNextEntry()) != null) {
+                ByteArrayOutputStream entryData = new ByteArrayOutputStream();
+                zipInputStream.transferTo(entryData);
+                entries.put(zipEntry.getName(), entryData.toByteArray());
+            }
+        }
+        assertEquals(4, entries.size());
+        assertArrayEquals(new byte[] {1, 1}, entries.get("curiosity_1.jpg"));
+        assertArrayEquals(new byte[] {3, 3, 3}, entries.get("curiosity_3.jpg"));
+        assertArrayEquals(new byte[] {4}, entries.get("curiosity_4.jpg"));
+        assertEquals("curiosity_2.jpg: could not be retrieved\ncuriosity_4.jpg: incomplete, the image source failed partway\n",
+            new String(entries.get(PhotoArchiveService.MISSING_ENTRY), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void whenNoPhotos_shouldReturnNotFound() {
+        given(nasaRoverClient.getRoverPhotos(any())).willReturn(Mono.just(new PhotoList(new Photo[0])));
+
+        MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        queryParams.add("sol", "1000");
+
+        assertThrows(ResponseStatusException.class, () -> photoArchiveService.streamPhotoArchive(PhotoQuery.parse("curiosity", queryParams)).block());
+    }
+}
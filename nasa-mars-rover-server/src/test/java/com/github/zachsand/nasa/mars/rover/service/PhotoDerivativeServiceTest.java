@@ -0,0 +1,81 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.zachsand.nasa.mars.rover.config.PhotoDerivativeConfiguration;
+import com.github.zachsand.nasa.mars.rover.model.PhotoImage;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class PhotoDerivativeServiceTest {
+
+    private final PhotoDownloadService photoDownloadService = mock(PhotoDownloadService.class);
+
+    private final PhotoDerivativeService photoDerivativeService = new PhotoDerivativeService(photoDownloadService,
+        new PhotoDerivativeConfiguration(1, 4, 1000, DataSize.ofMegabytes(1), 1, DataSize.ofMegabytes(1)),
+        new SimpleMeterRegistry());
+
+    @AfterEach
+    public void stop() {
+        photoDerivativeService.stop();
+    }
+
+    private static byte[] createJpeg(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpeg", output);
+        return output.toByteArray();
+    }
+
+    private static MultiValueMap<String, String> queryParams(String name, String value) {
+        MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        queryParams.add(name, value);
+        return queryParams;
+    }
+
+    @Test
+    public void whenDownloadPhotoDerivative_shouldResizeOnceAndKeepAspectRatio() throws IOException {
+        given(photoDownloadService.downloadPhoto(PhotoQuery.forRover("curiosity"), "42"))
+            .willReturn(Mono.just(new PhotoImage("curiosity_42.jpg", createJpeg(400, 300))));
+
+        PhotoImage thumbnail = photoDerivativeService.downloadPhotoDerivative(PhotoQuery.forRover("curiosity"), "42", queryParams("width", "100")).block();
+        PhotoImage cachedThumbnail = photoDerivativeService.downloadPhotoDerivative(PhotoQuery.forRover("Curiosity"), "42", queryParams("width", "100")).block();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(thumbnail.getImageData()));
+        assertEquals(100, image.getWidth());
+        assertEquals(75, image.getHeight());
+        assertEquals("curiosity_42_w100q85.jpg", thumbnail.getPhotoName());
+        assertSame(thumbnail.getImageData(), cachedThumbnail.getImageData());
+        verify(photoDownloadService, times(1)).downloadPhoto(PhotoQuery.forRover("curiosity"), "42");
+    }
+
+    @Test
+    public void whenInvalidDerivativeParams_shouldReturnBadRequest() {
+        StepVerifier.create(photoDerivativeService.downloadPhotoDerivative(PhotoQuery.forRover("curiosity"), "42", queryParams("height", "0")))
+            .expectErrorMatches(e -> e instanceof ResponseStatusException
+                && ((ResponseStatusException) e).getStatus() == HttpStatus.BAD_REQUEST)
+            .verify();
+        StepVerifier.create(photoDerivativeService.downloadPhotoDerivative(PhotoQuery.forRover("curiosity"), "42", queryParams("quality", "high")))
+            .expectErrorMatches(e -> e instanceof ResponseStatusException
+                && ((ResponseStatusException) e).getStatus() == HttpStatus.BAD_REQUEST)
+            .verify();
+        verifyNoInteractions(photoDownloadService);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.config.PhotoDerivativeConfiguration;
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.Photo;
+import com.github.zachsand.nasa.mars.rover.model.PhotoMosaic;
+import com.github.zachsand.nasa.mars.rover.model.PhotoList;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class PhotoMosaicServiceTest {
+
+    private final NasaRoverClient nasaRoverClient = mock(NasaRoverClient.class);
+
+    private final PhotoDownloadService photoDownloadService = mock(PhotoDownloadService.class);
+
+    private final PhotoMosaicService photoMosaicService = new PhotoMosaicService(nasaRoverClient, photoDownloadService,
+        new PhotoDerivativeConfiguration(1, 4, 1000, DataSize.ofMegabytes(1), 2, DataSize.ofMegabytes(1)),
+        new SimpleMeterRegistry());
+
+    @AfterEach
+    public void stop() {
+        photoMosaicService.stop();
+    }
+
+    private static Photo createPhoto(int id) {
+        return new Photo(id, 1000, new Camera(1, "NAVCAM", 5, "Navigation Camera"), "http://img.com/" + id, "2015-06-03", null);
+    }
+
+    private static byte[] createJpeg(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, 200, 100);
+        graphics.dispose();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", output);
+        return output.toByteArray();
+    }
+
+    @Test
+    public void whenGetPhotoMosaic_shouldTilePhotosInOrderAndCache() throws IOException {
+        Photo[] photos = {createPhoto(1), createPhoto(2), createPhoto(3)};
+        given(nasaRoverClient.getRoverPhotos(PhotoQuery.forSol("curiosity", 1000))).willReturn(Mono.just(new PhotoList(photos)));
+        given(photoDownloadService.downloadPhoto("curiosity", photos[0])).willReturn(Mono.just(createJpeg(Color.RED)));
+        given(photoDownloadService.downloadPhoto("curiosity", photos[1])).willReturn(Mono.error(new IllegalStateException()));
+        given(photoDownloadService.downloadPhoto("curiosity", photos[2])).willReturn(Mono.just(createJpeg(Color.BLUE)));
+
+        MultiValueMap<String, String> queryParams = new LinkedMultiValueMap<>();
+        queryParams.add("sol", "1000");
+        queryParams.add("tile", "50");
+        PhotoMosaic mosaic = photoMosaicService.getPhotoMosaic(PhotoQuery.parse("curiosity", queryParams), queryParams).block();
+        PhotoMosaic cachedMosaic = photoMosaicService.getPhotoMosaic(PhotoQuery.parse("curiosity", queryParams), queryParams).block();
+
+        assertEquals("curiosity_sol_1000_mosaic.jpg", mosaic.getPhotoName());
+        assertEquals(1, mosaic.getMissingPhotos());
+        /* Kept briefly even with a photo missing, so a burst of requests doesn't retrieve every photo again */
+        assertSame(mosaic.getImageData(), cachedMosaic.getImageData());
+        verify(nasaRoverClient, times(1)).getRoverPhotos(PhotoQuery.forSol("curiosity", 1000));
+
+        /* Three photos make rows of two tiles, and the photo that failed is left out, so a single row is left */
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(mosaic.getImageData()));
+        assertEquals(100, image.getWidth());
+        assertEquals(50, image.getHeight());
+        Color left = new Color(image.getRGB(25, 25));
+        Color right = new Color(image.getRGB(75, 25));
+        assertTrue(left.getRed() > 200 && left.getBlue() < 50);
+        assertTrue(right.getBlue() > 200 && right.getRed() < 50);
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.model.Camera;
+import com.github.zachsand.nasa.mars.rover.model.Rover;
+import com.github.zachsand.nasa.mars.rover.model.RoverList;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class RoverCatalogTest {
+
+    private final NasaRoverClient nasaRoverClient = mock(NasaRoverClient.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final RoverCatalog roverCatalog = new RoverCatalog(nasaRoverClient, objectMapper);
+
+    private static RoverList createRoverList(int maxSol) {
+        return new RoverList(new Rover[] {
+            new Rover(5, "Curiosity", "2012-08-06", "2011-11-26", "active", maxSol, "2021-01-12", 524285,
+                new Camera[] {new Camera(20, "FHAZ", 5, "Front Hazard Avoidance Camera")})
+        });
+    }
+
+    @Test
+    public void whenRefreshed_shouldSwapInSerializedSnapshot() throws Exception {
+        RoverList roverList = createRoverList(2999);
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(roverList));
+
+        assertNull(roverCatalog.getSnapshot());
+        RoverCatalog.Snapshot snapshot = roverCatalog.currentSnapshot().block();
+
+        assertSame(snapshot, roverCatalog.getSnapshot());
+        assertEquals(ByteBuffer.wrap(objectMapper.writeValueAsBytes(roverList)), snapshot.getJson());
+        assertTrue(snapshot.getJson().isReadOnly());
+        assertEquals(Set.of("curiosity"), snapshot.getRoverNames());
+        assertEquals(2999, snapshot.findRover("CURIOSITY").orElseThrow().getMaxSol());
+        assertEquals("Front Hazard Avoidance Camera", snapshot.findCamera("curiosity", "fhaz").orElseThrow().getFullName());
+        assertTrue(snapshot.findCamera("curiosity", "MAST").isEmpty());
+        assertTrue(snapshot.findRover("spirit").isEmpty());
+    }
+
+    @Test
+    public void whenRoversUnchanged_shouldKeepSnapshot() {
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(createRoverList(2999)));
+        RoverCatalog.Snapshot snapshot = roverCatalog.refresh().block();
+
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(createRoverList(2999)));
+        assertSame(snapshot, roverCatalog.refresh().block());
+
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(createRoverList(3000)));
+        RoverCatalog.Snapshot changedSnapshot = roverCatalog.refresh().block();
+        assertNotSame(snapshot, changedSnapshot);
+        assertNotEquals(snapshot.getETag(), changedSnapshot.getETag());
+    }
+
+    @Test
+    public void whenRefreshFails_shouldKeepPreviousSnapshot() {
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(createRoverList(2999)));
+        RoverCatalog.Snapshot snapshot = roverCatalog.refresh().block();
+
+        given(nasaRoverClient.getRovers()).willReturn(Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY)));
+        StepVerifier.create(roverCatalog.refresh())
+            .expectError(ResponseStatusException.class)
+            .verify();
+
+        assertSame(snapshot, roverCatalog.getSnapshot());
+        StepVerifier.create(roverCatalog.currentSnapshot())
+            .expectNext(snapshot)
+            .verifyComplete();
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.zachsand.nasa.mars.rover.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.zachsand.nasa.mars.rover.client.NasaRoverClient;
+import com.github.zachsand.nasa.mars.rover.model.*;
+import com.github.zachsand.nasa.mars.rover.query.InvalidQueryException;
+import com.github.zachsand.nasa.mars.rover.query.PhotoQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+public class RoverManifestServiceTest {
+
+    private final NasaRoverClient nasaRoverClient = mock(NasaRoverClient.class);
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final RoverManifestService roverManifestService = new RoverManifestService(nasaRoverClient,
+        new RoverCatalog(nasaRoverClient, new ObjectMapper()), new SimpleMeterRegistry(), nanos::get);
+
+    private static PhotosManifest createManifest(int maxSol, int solOnePhotos) {
+        return new PhotosManifest(new Manifest("Curiosity", "2012-08-06", "2011-11-26", "active", maxSol, "2012-08-07",
+            20 + solOnePhotos, new ManifestPhoto[] {
+                new ManifestPhoto(0, "2012-08-06", 20, new String[] {"FHAZ"}),
+                new ManifestPhoto(1, "2012-08-07", solOnePhotos, new String[] {"NAVCAM"})
+            }));
+    }
+
+    private void givenRover(int maxSol) {
+        given(nasaRoverClient.getRovers()).willReturn(Mono.just(new RoverList(new Rover[] {
+            new Rover(5, "Curiosity", "2012-08-06", "2011-11-26", "active", maxSol, "2012-08-07", 30, new Camera[0])
+        })));
+    }
+
+    private int getSolOnePhotos() {
+        return roverManifestService.getRoverPhotoManifestByDate(PhotoQuery.forSol("curiosity", 1)).block()
+            .getValue().getTotalPhotos();
+    }
+
+    /* Loads the manifest, then lets it go stale with the rover so far ahead that a refresh loads the whole manifest */
+    private void givenStaleManifest() {
+        givenRover(1);
+        given(nasaRoverClient.getRoverManifest("curiosity")).willReturn(Mono.just(createManifest(1, 10)));
+        assertEquals(10, getSolOnePhotos());
+
+        givenRover(100);
+        nanos.addAndGet(TimeUnit.HOURS.toNanos(13));
+    }
+
+    private void awaitSolOnePhotos(int photos) throws InterruptedException {
+        for(int attempt = 0; attempt < 100; attempt++) {
+            if(getSolOnePhotos() == photos) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("The refreshed manifest was not served in time");
+    }
+
+    @Test
+    public void whenRefreshInFlight_shouldServeOldManifestAndReloadOnce() throws Exception {
+        givenStaleManifest();
+        Sinks.One<PhotosManifest> refreshedManifest = Sinks.one();
+        given(nasaRoverClient.getRoverManifest("curiosity")).willReturn(refreshedManifest.asMono());
+
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> reads = new ArrayList<>();
+            for(int reader = 0; reader < 8; reader++) {
+                reads.add(readers.submit(this::getSolOnePhotos));
+            }
+            for(Future<Integer> read : reads) {
+                assertEquals(10, read.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+        verify(nasaRoverClient, timeout(1000).times(2)).getRoverManifest("curiosity");
+        assertEquals(10, getSolOnePhotos());
+
+        refreshedManifest.tryEmitValue(createManifest(100, 12));
+        awaitSolOnePhotos(12);
+        verify(nasaRoverClient, times(2)).getRoverManifest("curiosity");
+    }
+
+    @Test
+    public void whenRefreshFails_shouldKeepOldManifest() throws Exception {
+        givenStaleManifest();
+        given(nasaRoverClient.getRoverManifest("curiosity"))
+            .willReturn(Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY)));
+
+        assertEquals(10, getSolOnePhotos());
+        verify(nasaRoverClient, timeout(1000).times(2)).getRoverManifest("curiosity");
+        assertEquals(10, getSolOnePhotos());
+
+        /* Still stale, so the next read refreshes it again */
+        given(nasaRoverClient.getRoverManifest("curiosity")).willReturn(Mono.just(createManifest(100, 12)));
+        awaitSolOnePhotos(12);
+    }
+
+    @Test
+    public void whenInvalidRangeOrPage_shouldRejectWithInvalidQuery() {
+        MultiValueMap<String, String> range = new LinkedMultiValueMap<>();
+        range.add("start_sol", "1e3");
+        range.add("end_sol", "2000");
+        StepVerifier.create(roverManifestService.getRoverPhotoManifestRange("curiosity", range))
+            .expectError(InvalidQueryException.class)
+            .verify();
+
+        MultiValueMap<String, String> page = new LinkedMultiValueMap<>();
+        page.add("camera", "NAVCAM");
+        page.add("per_page", "ten");
+        StepVerifier.create(roverManifestService.getRoverPhotoManifestByCameras("curiosity", page))
+            .expectError(InvalidQueryException.class)
+            .verify();
+
+        MultiValueMap<String, String> dates = new LinkedMultiValueMap<>();
+        dates.add("start_date", "9/12/2012");
+        dates.add("end_date", "2012-09-11");
+        StepVerifier.create(roverManifestService.getRoverPhotoManifestRange("curiosity", dates))
+            .expectErrorSatisfies(error -> {
+                assertTrue(error instanceof InvalidQueryException);
+                assertEquals("start_date is after end_date", ((InvalidQueryException) error).getReason());
+            })
+            .verify();
+
+        MultiValueMap<String, String> noCamera = new LinkedMultiValueMap<>();
+        noCamera.add("per_page", "10");
+        StepVerifier.create(roverManifestService.getRoverPhotoManifestByCameras("curiosity", noCamera))
+            .expectError(InvalidQueryException.class)
+            .verify();
+        verifyNoInteractions(nasaRoverClient);
+    }
+}
@@ -5,12 +5,143 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class DateUtilTest {
 
+    /* The formatter DateUtil used to parse with, which parseEpochDay has to agree with */
+    private static final DateTimeFormatter REFERENCE_FORMATTER = DateTimeFormatter.ofPattern(""
+            + "[MM/dd/uuuu]"
+            + "[MM/dd/uu]"
+            + "[MMMM d, uuuu]"
+            + "[MMM-d-uuuu]"
+            + "[uuuu-MM-dd]"
+            + "[M/d/uuuu]"
+        , Locale.ENGLISH)
+        .withResolverStyle(ResolverStyle.STRICT);
+
+    private static final String[] PATTERNS = {"MM/dd/uuuu", "MM/dd/uu", "MMMM d, uuuu", "MMM-d-uuuu", "uuuu-MM-dd", "M/d/uuuu"};
+
+    /* Pieces of dates the random dates are made of, to get near valid ones far more often than random characters do */
+    private static final String[] PIECES = {"0", "1", "2", "3", "6", "00", "02", "06", "12", "13", "15", "29", "30", "31",
+        "32", "99", "2015", "2016", "1900", "0000", "02015", "/", "-", "+", ",", " ", ", ", "June", "Jun", "May", "Sep",
+        "Sept", "february", "x"};
+
+    private static long referenceEpochDay(String date) {
+        try {
+            return LocalDate.parse(date, REFERENCE_FORMATTER).toEpochDay();
+        } catch(Exception e) {
+            return DateUtil.INVALID_DATE;
+        }
+    }
+
+    private static List<String> generateCorpus() {
+        List<String> corpus = new ArrayList<>();
+        List<DateTimeFormatter> formatters = new ArrayList<>();
+        for(String pattern : PATTERNS) {
+            formatters.add(DateTimeFormatter.ofPattern(pattern, Locale.ENGLISH));
+        }
+
+        /* Every format of every day of two years around a leap day, and of a day a month over two centuries */
+        List<LocalDate> dates = new ArrayList<>();
+        for(LocalDate date = LocalDate.of(2015, 1, 1); date.isBefore(LocalDate.of(2017, 1, 1)); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+        for(LocalDate date = LocalDate.of(1900, 1, 28); date.getYear() < 2101; date = date.plusMonths(1)) {
+            dates.add(date);
+        }
+        for(LocalDate date : dates) {
+            for(DateTimeFormatter formatter : formatters) {
+                String formatted = date.format(formatter);
+                corpus.add(formatted);
+                /* Every prefix, and with the last character dropped or repeated */
+                for(int i = 0; i < formatted.length(); i++) {
+                    corpus.add(formatted.substring(0, i));
+                }
+                corpus.add(formatted + formatted.charAt(formatted.length() - 1));
+            }
+        }
+
+        /* Days that don't exist, month and day swapped, and two formats of the same or different days in a row */
+        for(int year : new int[] {1900, 2000, 2015, 2016}) {
+            for(int month = 0; month <= 13; month++) {
+                for(int day : new int[] {0, 1, 28, 29, 30, 31, 32}) {
+                    corpus.add(String.format("%02d/%02d/%04d", month, day, year));
+                    corpus.add(String.format("%04d-%02d-%02d", year, month, day));
+                    corpus.add(String.format("%d/%d/%d", month, day, year));
+                    corpus.add(String.format("%02d/%02d/%04d", day, month, year));
+                }
+            }
+        }
+        Random random = new Random(20150603);
+        for(int i = 0; i < 20_000; i++) {
+            LocalDate first = dates.get(random.nextInt(dates.size()));
+            LocalDate second = random.nextBoolean() ? first : dates.get(random.nextInt(dates.size()));
+            corpus.add(first.format(formatters.get(random.nextInt(formatters.size())))
+                + second.format(formatters.get(random.nextInt(formatters.size()))));
+        }
+
+        /* Signs, leading zeros and extra digits, which each field allows differently */
+        for(String year : new String[] {"2015", "-2015", "+2015", "02015", "+02015", "-02015", "+00000", "-0000",
+            "+999999999", "+1000000000", "-999999999", "+9999999999999999999", "15", "-15", "+15"}) {
+            for(String day : new String[] {"3", "03", "003", "+3", "-3", "-0", "0000000000000000003", "00000000000000000003"}) {
+                corpus.add("06/03/" + year);
+                corpus.add(year + "-06-03");
+                corpus.add("June " + day + ", " + year);
+                corpus.add("Jun-" + day + "-" + year);
+                corpus.add("6/" + day + "/" + year);
+                corpus.add(day + "/3/" + year);
+            }
+        }
+
+        for(int i = 0; i < 50_000; i++) {
+            StringBuilder date = new StringBuilder();
+            int pieces = 1 + random.nextInt(7);
+            for(int j = 0; j < pieces; j++) {
+                date.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            corpus.add(date.toString());
+        }
+        return corpus;
+    }
+
+    @Test
+    public void whenParseEpochDay_shouldAgreeWithFormatter() {
+        int valid = 0;
+        for(String date : generateCorpus()) {
+            long expected = referenceEpochDay(date);
+            assertEquals(expected, DateUtil.parseEpochDay(date), "[" + date + "]");
+            if(expected != DateUtil.INVALID_DATE) {
+                valid++;
+            }
+        }
+        /* The corpus has to have plenty of both */
+        assertTrue(valid > 10_000, valid + " valid dates");
+    }
+
+    @Test
+    public void whenParseEpochDayOfPhotoDates_shouldAgreeWithFormatter() throws IOException, URISyntaxException {
+        List<String> photoDates = Files.readAllLines(Path.of(getClass().getResource("/photo-dates.txt").toURI()));
+        assertFalse(photoDates.isEmpty());
+        for(String date : photoDates) {
+            assertEquals(referenceEpochDay(date), DateUtil.parseEpochDay(date), "[" + date + "]");
+        }
+        assertEquals(DateUtil.INVALID_DATE, DateUtil.parseEpochDay("April 31, 2018"));
+        assertEquals(DateUtil.INVALID_DATE, DateUtil.parseEpochDay(null));
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"02/27/17", "June 2, 2018", "Jul-13-2016"})
     public void whenValidDate_ShouldParse(String validDate) {
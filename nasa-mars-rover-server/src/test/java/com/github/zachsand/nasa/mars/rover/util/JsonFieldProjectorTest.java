@@ -0,0 +1,66 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JsonFieldProjectorTest {
+
+    private static final String PHOTOS = "{\"photos\":["
+        + "{\"id\":1,\"sol\":1000,\"camera\":{\"id\":20,\"name\":\"FHAZ\",\"rover_id\":5},"
+        + "\"img_src\":\"http://img.com/1.jpg\",\"rover\":{\"id\":5,\"name\":\"Curiosity\",\"cameras\":[{\"name\":\"FHAZ\"}]}},"
+        + "{\"id\":2,\"sol\":1000,\"camera\":{\"id\":22,\"name\":\"NAVCAM\",\"rover_id\":5},"
+        + "\"img_src\":\"http://img.com/2.jpg\",\"rover\":{\"id\":5,\"name\":\"Curiosity\",\"cameras\":[{\"name\":\"FHAZ\"}]}}"
+        + "],\"other\":[{\"id\":3}]}";
+
+    /* Splits the document into small buffers, so tokens are cut off between buffers */
+    private static Flux<DataBuffer> chunked(String json, int chunkSize) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+            .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(
+                Arrays.copyOfRange(bytes, chunk * chunkSize, Math.min(bytes.length, (chunk + 1) * chunkSize))));
+    }
+
+    private static String project(String json, int chunkSize, String... fields) {
+        return DataBufferUtils.join(JsonFieldProjector.project(chunked(json, chunkSize), "photos", Set.of(fields)))
+            .map(dataBuffer -> dataBuffer.toString(StandardCharsets.UTF_8))
+            .block();
+    }
+
+    @Test
+    public void whenProjectFields_shouldKeepOnlyFields() {
+        assertEquals("{\"photos\":[{\"id\":1,\"img_src\":\"http://img.com/1.jpg\"},"
+                + "{\"id\":2,\"img_src\":\"http://img.com/2.jpg\"}]}",
+            project(PHOTOS, 7, "id", "img_src"));
+    }
+
+    @Test
+    public void whenProjectNestedFields_shouldKeepNestedFieldsAndWholeObjects() {
+        assertEquals("{\"photos\":[{\"camera\":{\"name\":\"FHAZ\"},"
+                + "\"rover\":{\"id\":5,\"name\":\"Curiosity\",\"cameras\":[{\"name\":\"FHAZ\"}]}},"
+                + "{\"camera\":{\"name\":\"NAVCAM\"},"
+                + "\"rover\":{\"id\":5,\"name\":\"Curiosity\",\"cameras\":[{\"name\":\"FHAZ\"}]}}]}",
+            project(PHOTOS, 3, "camera.name", "rover"));
+    }
+
+    @Test
+    public void whenNoArrayField_shouldReturnEmptyArray() {
+        assertEquals("{\"photos\":[]}", project("{\"errors\":\"No Photos Found\"}", 4, "id"));
+    }
+
+    @Test
+    public void whenDocumentIncomplete_shouldError() {
+        StepVerifier.create(JsonFieldProjector.project(chunked("{\"photos\":[{\"id\":1}", 5), "photos", Set.of("id")))
+            .thenConsumeWhile(dataBuffer -> true)
+            .verifyError();
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.zachsand.nasa.mars.rover.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MarsClockTest {
+
+    private static final MarsClock CURIOSITY = MarsClock.forLandingDate("2012-08-06").orElseThrow();
+
+    @Test
+    public void whenToEpochDay_shouldMatchNasaEarthDates() {
+        assertEquals(LocalDate.of(2012, 8, 6).toEpochDay(), CURIOSITY.toEpochDay(0));
+        assertEquals(LocalDate.of(2012, 8, 9).toEpochDay(), CURIOSITY.toEpochDay(3));
+        assertEquals(LocalDate.of(2015, 5, 30).toEpochDay(), CURIOSITY.toEpochDay(1000));
+    }
+
+    @Test
+    public void whenToEpochDay_shouldMatchRecordedNasaRovers() {
+        /* landing_date, max_sol and max_date as recorded from the NASA Mars Rover API rovers endpoint, and sols 1000
+         * and 1004 of Curiosity as dated in the photos of the NASA Mars Rover API documentation */
+        assertRecorded("2012-08-06", 1000, "2015-05-30");
+        assertRecorded("2012-08-06", 1004, "2015-06-03");
+        assertRecorded("2012-08-06", 4102, "2024-02-19");
+        assertRecorded("2004-01-25", 5111, "2018-06-11");
+        assertRecorded("2004-01-04", 2208, "2010-03-21");
+    }
+
+    private static void assertRecorded(String landingDate, int sol, String earthDate) {
+        MarsClock marsClock = MarsClock.forLandingDate(landingDate).orElseThrow();
+        assertEquals(LocalDate.parse(earthDate).toEpochDay(), marsClock.toEpochDay(sol));
+        assertEquals(sol, marsClock.toSol(LocalDate.parse(earthDate).toEpochDay()));
+    }
+
+    @Test
+    public void whenToSol_shouldRoundTripEverySol() {
+        for(int sol = 0; sol < 10_000; sol++) {
+            long epochDay = CURIOSITY.toEpochDay(sol);
+            assertEquals(sol, CURIOSITY.toSol(epochDay));
+            assertEquals(sol, CURIOSITY.latestSolOnOrBefore(epochDay));
+        }
+    }
+
+    @Test
+    public void whenEarthDateWithoutSol_shouldReturnSolUnderWay() {
+        /* Sol 36 is dated 2012-09-11 and sol 37 2012-09-13 */
+        long epochDay = LocalDate.of(2012, 9, 12).toEpochDay();
+
+        assertEquals(MarsClock.NO_SOL, CURIOSITY.toSol(epochDay));
+        assertEquals(36, CURIOSITY.latestSolOnOrBefore(epochDay));
+    }
+
+    @Test
+    public void whenBeforeLandingOrInvalid_shouldReturnNoSol() {
+        long epochDay = LocalDate.of(2012, 8, 5).toEpochDay();
+
+        assertEquals(MarsClock.NO_SOL, CURIOSITY.toSol(epochDay));
+        assertEquals(MarsClock.NO_SOL, CURIOSITY.latestSolOnOrBefore(epochDay));
+        assertEquals(MarsClock.NO_SOL, CURIOSITY.latestSolOnOrBefore(Long.MAX_VALUE));
+        assertTrue(MarsClock.forLandingDate("someday").isEmpty());
+        assertTrue(MarsClock.forLandingDate(null).isEmpty());
+    }
+}